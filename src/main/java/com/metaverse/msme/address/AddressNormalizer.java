@@ -30,17 +30,20 @@ public class AddressNormalizer {
      * 1) Lowercase
      * 2) Remove non-letters/digits
      * 3) Collapse spaces
+     * <p>
+     * Single pass, no regex; an already normalized string is returned as is.
      */
     public String normalize(String raw) {
-        if (raw == null) return "";
-
-        return raw
-                .toLowerCase()
-                // keep text, remove brackets themselves but NOT the words
-                .replaceAll("[()]", " ")
-                .replaceAll("[^a-z0-9\\s]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
+        return AddressScanner.normalize(raw);
+    }
+
+    /**
+     * Collapses common transliteration variants ("oo" → "u") so that
+     * "Muthnoor" and "Muthnur" compare equal.
+     */
+    public String phoneticNormalize(String s) {
+        return s.replace("oo", "u")
+                .replace("oor", "ur");
     }
 
     /**
@@ -80,65 +83,21 @@ public class AddressNormalizer {
 
         if (raw == null || raw.isBlank()) return Collections.emptyList();
 
-        // Normalize (lowercase, remove punctuation)
-        String norm = normalize(cleanRawAddress(raw));
-
-        // Split into tokens
-        String[] parts = norm.split("\\s+");
-
-        // Words that should NEVER participate in mandal/village detection
-        Set<String> STOP = Set.of(
-                "village", "town", "city", "district", "dist", "mandal",
-                "block", "street", "st", "rd", "lane", "colony",
-                "house", "flat", "building", "doorno", "plot", "near", "opp",
-                "area", "locality", "0", "-"
-        );
-
         List<String> out = new ArrayList<>();
-//        out = normalizeAndRemoveRoadNames(out);
-        for (String p : parts) {
-            if (p == null) continue;
-            p = p.trim();
-            if (p.isEmpty()) continue;
-            if (STOP.contains(p)) continue;
-            if (p.length() <= 1) continue;
-            if (p.matches("^[0-9]+$")) continue; // remove pure numbers
-
-            out.add(p);
-        }
+        meaningfulTokens(raw, out);
         return out;
     }
 
-
-    private String cleanRawAddress(String raw) {
-
-        if (raw == null) return "";
-
-        String lower = raw.toLowerCase();
-
-        // ✅ CASE 1: Structured form (Road/Street:- exists)
-        if (lower.matches(".*road\\s*/\\s*street\\s*:-?.*")) {
-            // Remove values ONLY inside Road/Street field
-            lower = lower.replaceAll("road\\s*/\\s*street\\s*:-?\\s*[^,]+", " ");
-
-            // Remove other labels but KEEP their values
-            lower = lower.replaceAll("\\b(flat\\s*no|building|village/town|block|city)\\s*:-?", " ");
-        }// ✅ CASE 2: Free-text address (no labels)
-        else {
-            // Remove road-related words globally
-            lower = lower.replaceAll("\\b(road|street|lane|rd|st|colony|area|block)\\b", " ");
-
-            // Remove (V), (H) etc
-            lower = lower.replaceAll("\\([a-z]+\\)", " ");
-        }
-
-        // ✅ COMMON CLEANUP
-        lower = lower.replaceAll("\\b(h\\.?no|d\\.?no|plot|flat)\\b\\s*[:\\-]?\\s*\\w+", " ");
-
-        lower = lower.replaceAll("[^a-z\\s]", " ");
-        lower = lower.replaceAll("\\s+", " ").trim();
-
-        return lower;
+    /**
+     * Same tokens as {@link #meaningfulTokenSet}, appended to a caller-owned
+     * list so hot loops can reuse one buffer.
+     * <p>
+     * Lowercasing, the structured "Road/Street:-" form, road words, (V)/(M)
+     * markers, house/plot numbers and stop words are all handled by one
+     * hand-written scanner ({@link AddressScanner}), with no regex.
+     */
+    public void meaningfulTokens(String raw, List<String> out) {
+        AddressScanner.meaningfulTokens(raw, out);
     }
 
 /*
@@ -0,0 +1,408 @@
+package com.metaverse.msme.address;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Hand-written replacement for the regex chains behind
+ * {@link AddressNormalizer#normalize} and {@link AddressNormalizer#meaningfulTokenSet}.
+ * <p>
+ * For ASCII input the address is lower-cased into a thread-local char buffer
+ * and worked on in place: one sweep strips the structured-form fields or the
+ * free-text road words and {@code (V)}-style markers, a second sweep drops
+ * house/plot numbers and emits the letter tokens that survive the stop list.
+ * Removed text is overwritten with spaces instead of being cut out, which
+ * every later step treats the same as the single space the regexes inserted.
+ * <p>
+ * Non-ASCII input goes through the original patterns: there, lower-casing can
+ * change the string length and {@code \b} depends on the JDK version, and the
+ * output must stay identical to what the regexes produced.
+ */
+final class AddressScanner {
+
+    // Words that should NEVER participate in mandal/village detection
+    private static final Set<String> STOP = Set.of(
+            "village", "town", "city", "district", "dist", "mandal",
+            "block", "street", "st", "rd", "lane", "colony",
+            "house", "flat", "building", "doorno", "plot", "near", "opp",
+            "area", "locality", "0", "-"
+    );
+
+    // free-text addresses: road-related words removed globally
+    private static final String[] ROAD_WORDS = {
+            "road", "street", "lane", "rd", "st", "colony", "area", "block"
+    };
+
+    // structured form: labels removed, their values kept
+    private static final String[] FIELD_LABELS = {
+            "building", "village/town", "block", "city"
+    };
+
+    // house / plot numbers: label and the value after it are removed
+    private static final String[] NUMBER_LABELS = {"hno", "dno", "plot", "flat"};
+
+    private static final ThreadLocal<char[]> BUFFER =
+            ThreadLocal.withInitial(() -> new char[256]);
+
+    private AddressScanner() {
+    }
+
+    /* ---------------------------------------------------------
+       normalize
+       --------------------------------------------------------- */
+
+    /**
+     * Lower-cased {@code [a-z0-9]} runs joined by single spaces. A string that
+     * is already in that form is returned as is.
+     */
+    static String normalize(String raw) {
+        if (raw == null) return "";
+
+        String s = isAscii(raw) ? raw : raw.toLowerCase();
+        if (isNormalized(s)) return s;
+
+        char[] buf = buffer(s.length());
+        int len = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = lower(s.charAt(i));
+            if (isAlnum(c)) {
+                if (pendingSpace && len > 0) buf[len++] = ' ';
+                buf[len++] = c;
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return new String(buf, 0, len);
+    }
+
+    private static boolean isNormalized(String s) {
+        int n = s.length();
+        if (n == 0) return true;
+        if (s.charAt(0) == ' ' || s.charAt(n - 1) == ' ') return false;
+
+        char prev = 'a';
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == ' ') {
+                if (prev == ' ') return false;
+            } else if (!isAlnum(c)) {
+                return false;
+            }
+            prev = c;
+        }
+        return true;
+    }
+
+    /* ---------------------------------------------------------
+       meaningful tokens
+       --------------------------------------------------------- */
+
+    /** Appends the meaningful tokens of {@code raw} to {@code out}. */
+    static void meaningfulTokens(String raw, List<String> out) {
+        if (raw == null || raw.isBlank()) return;
+
+        if (!isAscii(raw)) {
+            Legacy.meaningfulTokens(raw, out);
+            return;
+        }
+
+        int n = raw.length();
+        char[] buf = buffer(n);
+        boolean lineBreak = false;
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (c == '\n' || c == '\r') lineBreak = true;
+            buf[i] = lower(c);
+        }
+
+        // CASE 1: Structured form (Road/Street:- exists); CASE 2: free text
+        if (!lineBreak && hasRoadStreetField(buf, n)) {
+            stripStructuredFields(buf, n);
+        } else {
+            stripRoadWords(buf, n);
+        }
+
+        emitTokens(buf, n, out);
+    }
+
+    private static boolean hasRoadStreetField(char[] buf, int n) {
+        for (int i = 0; i < n; i++) {
+            if (buf[i] == 'r' && roadStreetColon(buf, i, n) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Matches {@code road\s*&#47;\s*street\s*:} at {@code i}; returns the index
+     * just past the colon, or -1.
+     */
+    private static int roadStreetColon(char[] buf, int i, int n) {
+        int j = expect(buf, i, n, "road");
+        if (j < 0) return -1;
+        j = skipSpace(buf, j, n);
+        if (j >= n || buf[j] != '/') return -1;
+        j = expect(buf, skipSpace(buf, j + 1, n), n, "street");
+        if (j < 0) return -1;
+        j = skipSpace(buf, j, n);
+        if (j >= n || buf[j] != ':') return -1;
+        return j + 1;
+    }
+
+    private static void stripStructuredFields(char[] buf, int n) {
+        int i = 0;
+        while (i < n) {
+            // Remove values ONLY inside Road/Street field: everything up to the next comma
+            int afterColon = buf[i] == 'r' ? roadStreetColon(buf, i, n) : -1;
+            if (afterColon >= 0 && afterColon < n && buf[afterColon] != ',') {
+                int end = afterColon;
+                while (end < n && buf[end] != ',') end++;
+                blank(buf, i, end);
+                i = end;
+                continue;
+            }
+
+            // Remove other labels but KEEP their values
+            if (isWord(buf[i]) && (i == 0 || !isWord(buf[i - 1]))) {
+                int end = fieldLabel(buf, i, n);
+                if (end >= 0) {
+                    blank(buf, i, end);
+                    i = end;
+                    continue;
+                }
+            }
+            i++;
+        }
+    }
+
+    /** Matches {@code (flat\s*no|building|village/town|block|city)\s*:-?} at {@code i}. */
+    private static int fieldLabel(char[] buf, int i, int n) {
+        int j = expect(buf, i, n, "flat");
+        if (j >= 0) {
+            j = expect(buf, skipSpace(buf, j, n), n, "no");
+        } else {
+            for (String label : FIELD_LABELS) {
+                j = expect(buf, i, n, label);
+                if (j >= 0) break;
+            }
+        }
+        if (j < 0) return -1;
+
+        j = skipSpace(buf, j, n);
+        if (j >= n || buf[j] != ':') return -1;
+        j++;
+        if (j < n && buf[j] == '-') j++;
+        return j;
+    }
+
+    private static void stripRoadWords(char[] buf, int n) {
+        int i = 0;
+        while (i < n) {
+            if (!isWord(buf[i])) {
+                i++;
+                continue;
+            }
+            int s = i;
+            i = wordEnd(buf, s, n);
+
+            if (isOneOf(buf, s, i, ROAD_WORDS)) {
+                blank(buf, s, i);
+            } else if (s > 0 && buf[s - 1] == '(' && i < n && buf[i] == ')' && isLetters(buf, s, i)) {
+                // Remove (V), (H) etc
+                blank(buf, s - 1, i + 1);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Drops house/plot number labels together with their value, then emits the
+     * letter runs that are long enough and not stop words.
+     */
+    private static void emitTokens(char[] buf, int n, List<String> out) {
+        int i = 0;
+        while (i < n) {
+            if (!isWord(buf[i])) {
+                i++;
+                continue;
+            }
+            int s = i;
+            int e = wordEnd(buf, s, n);
+
+            int labelEnd = numberLabel(buf, s, e, n);
+            if (labelEnd >= 0) {
+                int value = numberValue(buf, labelEnd, n);
+                if (value >= 0) {
+                    i = wordEnd(buf, value, n);
+                    continue;
+                }
+            }
+
+            emitLetterRuns(buf, s, e, out);
+            i = e;
+        }
+    }
+
+    /** Matches {@code (h\.?no|d\.?no|plot|flat)\b} for the word at {@code [s, e)}. */
+    private static int numberLabel(char[] buf, int s, int e, int n) {
+        if (isOneOf(buf, s, e, NUMBER_LABELS)) return e;
+
+        // "h.no" / "d.no": a one-letter word, a dot, then the word "no"
+        if (e - s == 1 && (buf[s] == 'h' || buf[s] == 'd')
+                && e < n && buf[e] == '.'
+                && expect(buf, e + 1, n, "no") >= 0
+                && (e + 3 == n || !isWord(buf[e + 3]))) {
+            return e + 3;
+        }
+        return -1;
+    }
+
+    /** Matches {@code \s*[:\-]?\s*} then a word; returns where the word starts, or -1. */
+    private static int numberValue(char[] buf, int j, int n) {
+        j = skipSpace(buf, j, n);
+        if (j < n && (buf[j] == ':' || buf[j] == '-')) j++;
+        j = skipSpace(buf, j, n);
+        return j < n && isWord(buf[j]) ? j : -1;
+    }
+
+    private static void emitLetterRuns(char[] buf, int s, int e, List<String> out) {
+        int i = s;
+        while (i < e) {
+            if (!isLetter(buf[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < e && isLetter(buf[i])) i++;
+
+            if (i - start <= 1) continue;
+            String token = new String(buf, start, i - start);
+            if (STOP.contains(token)) continue;
+            out.add(token);
+        }
+    }
+
+    /* ---------------------------------------------------------
+       char helpers
+       --------------------------------------------------------- */
+
+    private static char[] buffer(int length) {
+        char[] buf = BUFFER.get();
+        if (buf.length < length) {
+            buf = new char[Math.max(length, buf.length * 2)];
+            BUFFER.set(buf);
+        }
+        return buf;
+    }
+
+    private static int expect(char[] buf, int i, int n, String word) {
+        if (i < 0 || i + word.length() > n) return -1;
+        for (int k = 0; k < word.length(); k++) {
+            if (buf[i + k] != word.charAt(k)) return -1;
+        }
+        return i + word.length();
+    }
+
+    private static boolean isOneOf(char[] buf, int s, int e, String[] words) {
+        for (String w : words) {
+            if (w.length() == e - s && expect(buf, s, e, w) == e) return true;
+        }
+        return false;
+    }
+
+    private static int wordEnd(char[] buf, int i, int n) {
+        while (i < n && isWord(buf[i])) i++;
+        return i;
+    }
+
+    private static int skipSpace(char[] buf, int i, int n) {
+        while (i < n && isSpace(buf[i])) i++;
+        return i;
+    }
+
+    private static void blank(char[] buf, int from, int to) {
+        for (int k = from; k < to; k++) buf[k] = ' ';
+    }
+
+    private static boolean isLetters(char[] buf, int s, int e) {
+        for (int k = s; k < e; k++) {
+            if (!isLetter(buf[k])) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 127) return false;
+        }
+        return true;
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isAlnum(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    // regex \w on lower-cased ASCII
+    private static boolean isWord(char c) {
+        return isAlnum(c) || c == '_';
+    }
+
+    // regex \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /* ---------------------------------------------------------
+       original regex pipeline, kept for non-ASCII input
+       --------------------------------------------------------- */
+
+    private static final class Legacy {
+
+        private static final Pattern STRUCTURED = Pattern.compile(".*road\\s*/\\s*street\\s*:-?.*");
+        private static final Pattern ROAD_STREET_FIELD = Pattern.compile("road\\s*/\\s*street\\s*:-?\\s*[^,]+");
+        private static final Pattern FIELD_LABEL = Pattern.compile("\\b(flat\\s*no|building|village/town|block|city)\\s*:-?");
+        private static final Pattern ROAD_WORD = Pattern.compile("\\b(road|street|lane|rd|st|colony|area|block)\\b");
+        private static final Pattern MARKER = Pattern.compile("\\([a-z]+\\)");
+        private static final Pattern NUMBER = Pattern.compile("\\b(h\\.?no|d\\.?no|plot|flat)\\b\\s*[:\\-]?\\s*\\w+");
+        private static final Pattern NON_LETTER = Pattern.compile("[^a-z\\s]");
+        private static final Pattern SPACES = Pattern.compile("\\s+");
+
+        static void meaningfulTokens(String raw, List<String> out) {
+            String norm = normalize(clean(raw));
+
+            for (String p : norm.split(" ")) {
+                if (p.isEmpty()) continue;
+                if (STOP.contains(p)) continue;
+                if (p.length() <= 1) continue;
+                out.add(p);
+            }
+        }
+
+        private static String clean(String raw) {
+            String lower = raw.toLowerCase();
+
+            if (STRUCTURED.matcher(lower).matches()) {
+                lower = ROAD_STREET_FIELD.matcher(lower).replaceAll(" ");
+                lower = FIELD_LABEL.matcher(lower).replaceAll(" ");
+            } else {
+                lower = ROAD_WORD.matcher(lower).replaceAll(" ");
+                lower = MARKER.matcher(lower).replaceAll(" ");
+            }
+
+            lower = NUMBER.matcher(lower).replaceAll(" ");
+            lower = NON_LETTER.matcher(lower).replaceAll(" ");
+            return SPACES.matcher(lower).replaceAll(" ").trim();
+        }
+    }
+}
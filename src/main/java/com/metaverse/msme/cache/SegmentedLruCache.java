@@ -0,0 +1,192 @@
+package com.metaverse.msme.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, thread-safe segmented LRU cache.
+ * <p>
+ * New entries land in a probation segment; a second hit promotes them to the
+ * protected segment (80% of capacity). When full, the least recently used
+ * probation entry is evicted first, so a burst of one-off keys (a scan over
+ * unique addresses) cannot flush the entries that are actually reused.
+ * <p>
+ * Keys are spread over independently locked shards. Values are loaded outside
+ * the lock, so two threads missing on the same key may both compute it; the
+ * loader must be side-effect free. {@code null} values are never cached.
+ */
+public class SegmentedLruCache<K, V> {
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Shard<K, V>[] shards;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize maximum number of entries across all shards
+     * @param concurrency expected number of concurrent callers; rounded up to
+     *                    a power of two shards
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SegmentedLruCache(int maximumSize, int concurrency) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        int shardCount = 1;
+        while (shardCount < concurrency && shardCount < 64 && maximumSize / (shardCount * 2) >= 16) {
+            shardCount <<= 1;
+        }
+        this.shards = new Shard[shardCount];
+        this.mask = shardCount - 1;
+
+        int base = maximumSize / shardCount;
+        int remainder = maximumSize % shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>(base + (i < remainder ? 1 : 0), evictions);
+        }
+    }
+
+    public V getIfPresent(K key) {
+        V value = shard(key).get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value, or loads, caches and returns it.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Shard<K, V> shard = shard(key);
+        V value = shard.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+
+        value = loader.apply(key);
+        if (value != null) {
+            shard.put(key, value);
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (value != null) {
+            shard(key).put(key, value);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Shard<K, V> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Shard<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Shard<K, V> shard(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return shards[(h * 0x9E3779B9 >>> 16) & mask];
+    }
+
+    private static final class Shard<K, V> {
+
+        private final int capacity;
+        private final int protectedCapacity;
+        private final LongAdder evictions;
+
+        // access-ordered: iteration starts at the least recently used entry
+        private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        Shard(int capacity, LongAdder evictions) {
+            this.capacity = Math.max(1, capacity);
+            this.protectedCapacity = this.capacity * PROTECTED_PERCENT / 100;
+            this.evictions = evictions;
+        }
+
+        synchronized V get(K key) {
+            V value = protectedSegment.get(key);
+            if (value != null) {
+                return value;
+            }
+
+            value = probation.remove(key);
+            if (value == null) {
+                return null;
+            }
+
+            // second hit: promote, demoting the protected LRU if it overflows
+            if (protectedCapacity == 0) {
+                probation.put(key, value);
+                return value;
+            }
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return value;
+        }
+
+        synchronized void put(K key, V value) {
+            if (protectedSegment.containsKey(key)) {
+                protectedSegment.put(key, value);
+                return;
+            }
+            probation.put(key, value);
+
+            while (probation.size() + protectedSegment.size() > capacity) {
+                removeEldest(probation.isEmpty() ? protectedSegment : probation);
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedSegment.clear();
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedSegment.size();
+        }
+
+        private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+            Iterator<Map.Entry<K, V>> it = segment.entrySet().iterator();
+            Map.Entry<K, V> eldest = it.next();
+            it.remove();
+            return eldest;
+        }
+    }
+}
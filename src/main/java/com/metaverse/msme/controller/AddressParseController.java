@@ -1,32 +1,122 @@
 package com.metaverse.msme.controller;
 
+import com.metaverse.msme.service.AddressBatchParseService;
 import com.metaverse.msme.service.AddressParseResult;
+import com.metaverse.msme.model.BulkJobCheckpoint;
 import com.metaverse.msme.service.AddressParseService;
+import com.metaverse.msme.service.UnitResolutionStats;
+import com.metaverse.msme.service.VillageCentroids;
+import com.metaverse.msme.service.VillageResolutionJob;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/address")
 public class AddressParseController {
 
     private final AddressParseService service;
+    private final AddressBatchParseService batchService;
+    private final VillageResolutionJob villageResolutionJob;
+    private final UnitResolutionStats resolutionStats;
 
-    public AddressParseController(AddressParseService service) {
+    public AddressParseController(AddressParseService service,
+                                  AddressBatchParseService batchService,
+                                  VillageResolutionJob villageResolutionJob,
+                                  UnitResolutionStats resolutionStats) {
         this.service = service;
+        this.batchService = batchService;
+        this.villageResolutionJob = villageResolutionJob;
+        this.resolutionStats = resolutionStats;
     }
 
-    @Operation(summary = "Detect mandal and village from address")
+    @Operation(summary = "Detect mandal and village from address; lat/lon, when given, break ties between matched mandals or villages")
     @GetMapping("/parse")
     public AddressParseResult parseAddress(
-            @RequestParam String district,
-            @RequestParam String address) {
+            @RequestParam(required = false) String district,
+            @RequestParam String address,
+            @RequestParam(required = false) String lat,
+            @RequestParam(required = false) String lon) {
+
+        return service.parse(district, address, VillageCentroids.Location.of(lat, lon));
+    }
+
+    @Operation(summary = "Parse a JSON array or NDJSON stream of {id, district, address}; results stream back as NDJSON in request order")
+    @PostMapping(
+            value = "/parse-batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void parseBatch(HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
 
-        return service.parse("Adilabad", address);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchService.parseBatch(request.getInputStream(), response.getOutputStream());
     }
 
+    @Operation(summary = "Re-resolve the village of units whose address or parser/gazetteer version changed; resumes an interrupted run unless restart=true")
     @PostMapping("/update-all")
-    public String updateAllUnits() {
-        int updated = service.updateAllUnitsVillage();
+    public String updateAllUnits(@RequestParam(defaultValue = "false") boolean restart) {
+        long updated = villageResolutionJob.run(restart);
         return "Village update completed. Records updated: " + updated;
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Checkpoint of the last village re-resolution run")
+    @GetMapping("/update-all/checkpoint")
+    public BulkJobCheckpoint updateAllCheckpoint() {
+        return villageResolutionJob.checkpoint();
+    }
+
+    @Operation(summary = "slno ranges of the current or last run, with the instance holding each")
+    @GetMapping("/update-all/ranges")
+    public List<Map<String, Object>> updateAllRanges() {
+        return villageResolutionJob.ranges();
+    }
+
+    @Operation(summary = "Per-stage throughput (read / parse / write) of the current or last run")
+    @GetMapping("/update-all/pipeline")
+    public Map<String, Object> updateAllPipeline() {
+        return villageResolutionJob.pipelineStats();
+    }
+
+    @Operation(summary = "Resolved unit counts grouped by any of district, mandal, village, category, status (ADDRESS STATUS), with optional filters on the same")
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(@RequestParam(defaultValue = "mandal") String groupBy,
+                                   @RequestParam(required = false) String district,
+                                   @RequestParam(required = false) String mandal,
+                                   @RequestParam(required = false) String village,
+                                   @RequestParam(required = false) String category,
+                                   @RequestParam(required = false) String status) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        if (district != null) filters.put("district", district);
+        if (mandal != null) filters.put("mandal", mandal);
+        if (village != null) filters.put("village", village);
+        if (category != null) filters.put("category", category);
+        if (status != null) filters.put("status", status);
+
+        List<String> dimensions = Arrays.stream(groupBy.split(","))
+                .map(String::trim)
+                .filter(d -> !d.isEmpty())
+                .distinct()
+                .toList();
+        try {
+            return ResponseEntity.ok(resolutionStats.summary(dimensions, filters));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Recount the unit stats from the stored resolution results")
+    @PostMapping("/stats/rebuild")
+    public Map<String, Object> rebuildStats() {
+        return Map.of("units", resolutionStats.rebuild());
+    }
+}
@@ -0,0 +1,26 @@
+package com.metaverse.msme.controller;
+
+import com.metaverse.msme.service.ParseExecutors;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/parse-executors")
+public class ExecutorAdminController {
+
+    private final ParseExecutors parseExecutors;
+
+    public ExecutorAdminController(ParseExecutors parseExecutors) {
+        this.parseExecutors = parseExecutors;
+    }
+
+    @Operation(summary = "Shared parse executors: threads, active tasks, queue depth, tasks run on the caller")
+    @GetMapping
+    public Map<String, Object> stats() {
+        return parseExecutors.stats();
+    }
+}
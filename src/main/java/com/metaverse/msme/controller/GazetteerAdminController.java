@@ -0,0 +1,40 @@
+package com.metaverse.msme.controller;
+
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/gazetteer")
+public class GazetteerAdminController {
+
+    private final GazetteerProvider gazetteerProvider;
+
+    public GazetteerAdminController(GazetteerProvider gazetteerProvider) {
+        this.gazetteerProvider = gazetteerProvider;
+    }
+
+    @Operation(summary = "Current gazetteer snapshot version")
+    @GetMapping
+    public Map<String, Object> current() {
+        return describe(gazetteerProvider.get());
+    }
+
+    @Operation(summary = "Reload the gazetteer from district_hierarchy")
+    @PostMapping("/reload")
+    public Map<String, Object> reload() {
+        return describe(gazetteerProvider.reload());
+    }
+
+    private Map<String, Object> describe(Gazetteer g) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", g.getVersion());
+        body.put("loadedAt", g.getLoadedAt());
+        body.put("districts", g.getDistricts().size());
+        return body;
+    }
+}
@@ -0,0 +1,86 @@
+package com.metaverse.msme.controller;
+
+import com.metaverse.msme.model.BulkJob;
+import com.metaverse.msme.service.JobService;
+import com.metaverse.msme.service.JobView;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @Operation(summary = "Start re-resolving stale units' villages in the background")
+    @PostMapping("/village-resolution")
+    public ResponseEntity<JobView> submitVillageResolution(@RequestParam(defaultValue = "false") boolean restart) {
+        return accepted(jobService.submitVillageResolution(restart));
+    }
+
+    @Operation(summary = "Start an Excel export in the background; download it from /jobs/{id}/artifact")
+    @PostMapping("/excel-export")
+    public ResponseEntity<JobView> submitExcelExport(@RequestParam(defaultValue = "0") int start,
+                                                     @RequestParam(defaultValue = "2147483647") int end) {
+        return accepted(jobService.submitExcelExport(start, end));
+    }
+
+    @Operation(summary = "Recently submitted jobs")
+    @GetMapping
+    public List<JobView> recent(@RequestParam(defaultValue = "20") int limit) {
+        return jobService.recent(Math.max(1, Math.min(limit, 200)));
+    }
+
+    @Operation(summary = "Job status: rows processed, rows/sec and ETA")
+    @GetMapping("/{id}")
+    public ResponseEntity<JobView> status(@PathVariable String id) {
+        return jobService.status(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Cancel a queued or running job")
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<JobView> cancel(@PathVariable String id) {
+        if (!jobService.cancel(id)) {
+            return jobService.status(id)
+                    .map(v -> ResponseEntity.status(HttpStatus.CONFLICT).body(v))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.status(id).orElse(null));
+    }
+
+    @Operation(summary = "Download the file produced by a finished export job")
+    @GetMapping("/{id}/artifact")
+    public ResponseEntity<StreamingResponseBody> artifact(@PathVariable String id) {
+        Path file = jobService.artifact(id).orElse(null);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> Files.copy(file, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=msme_details_" + id + ".xlsx")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+
+    private ResponseEntity<JobView> accepted(BulkJob job) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.status(job.getId()).orElse(null));
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/msme")
@@ -17,9 +18,10 @@ public class MsmeExcelController {
     }
 
     @GetMapping("/download-excel")
-    public ResponseEntity<byte[]> downloadExcel(@RequestParam(defaultValue = "0") int start, @RequestParam(defaultValue = "10") int end) {
+    public ResponseEntity<StreamingResponseBody> downloadExcel(@RequestParam(defaultValue = "0") int start, @RequestParam(defaultValue = "10") int end) {
 
-        byte[] excel = excelService.generateExcel(start,end);
+        // written to the response as rows are generated; nothing is buffered
+        StreamingResponseBody excel = out -> excelService.writeExcel(start, end, out);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
@@ -0,0 +1,26 @@
+package com.metaverse.msme.controller;
+
+import com.metaverse.msme.service.ParseResultCache;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/parse-cache")
+public class ParseCacheAdminController {
+
+    private final ParseResultCache parseResultCache;
+
+    public ParseCacheAdminController(ParseResultCache parseResultCache) {
+        this.parseResultCache = parseResultCache;
+    }
+
+    @Operation(summary = "Parse cache size and hit / miss / eviction counters")
+    @GetMapping
+    public Map<String, Object> stats() {
+        return parseResultCache.stats();
+    }
+}
@@ -1,17 +1,25 @@
 package com.metaverse.msme.district_and_mandal.controller;
 
 import com.metaverse.msme.district_and_mandal.service.DistrictAndMandalService;
-import com.metaverse.msme.district_and_mandal.service.DistrictResponse;
-import com.metaverse.msme.district_and_mandal.service.MandalResponse;
-import com.metaverse.msme.district_and_mandal.service.VillageResponse;
-import com.metaverse.msme.model.MsmeUnitDetails;
-import jakarta.websocket.server.PathParam;
+import com.metaverse.msme.district_and_mandal.service.HierarchyLookups;
+import com.metaverse.msme.district_and_mandal.service.NameSuggestion;
+import com.metaverse.msme.district_and_mandal.service.NameTypeahead;
+import com.metaverse.msme.district_and_mandal.service.UnitStreamService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -20,30 +28,91 @@ import java.util.List;
 public class DistrictAndMandalController {
 
     private final DistrictAndMandalService districtAndMandalService;
+    private final UnitStreamService unitStreamService;
+    private final NameTypeahead nameTypeahead;
 
     @GetMapping("/districts")
-    public List<DistrictResponse> getDistricts() {
-        return districtAndMandalService.getAllDistricts();
+    public ResponseEntity<byte[]> getDistricts(WebRequest request) {
+        return conditional(districtAndMandalService.districtsPayload(), request);
     }
 
     @GetMapping("/mandals/{districtId}")
-    public List<MandalResponse> getMandals(@PathVariable String districtId) {
-        return districtAndMandalService.getMandalsByDistrictName(districtId);
+    public ResponseEntity<byte[]> getMandals(@PathVariable String districtId, WebRequest request) {
+        return conditional(districtAndMandalService.mandalsPayload(districtId), request);
     }
 
     @GetMapping("/villages/{mandalId}")
-    public List<VillageResponse> getVillages(@PathVariable String mandalId) {
-        return districtAndMandalService.getVillagesByMandalName(mandalId);
+    public ResponseEntity<byte[]> getVillages(@PathVariable String mandalId, WebRequest request) {
+        return conditional(districtAndMandalService.villagesPayload(mandalId), request);
+    }
+
+    /**
+     * Mandal and village names (or aliases) starting with {@code q}, tolerating
+     * typos, best first. {@code type} is MANDAL or VILLAGE to suggest only those.
+     */
+    @GetMapping("/typeahead")
+    public ResponseEntity<List<NameSuggestion>> typeahead(@RequestParam String q,
+                                                          @RequestParam(required = false) String type,
+                                                          @RequestParam(required = false) String district,
+                                                          @RequestParam(defaultValue = "2") int maxTypos,
+                                                          @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > 50) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(nameTypeahead.suggest(q, type, district, maxTypos, limit));
     }
 
+    /**
+     * Units of a village, streamed as a JSON array. Keyset-paged on slno:
+     * pass the last slno received as {@code after} for the next page; a page
+     * shorter than {@code limit} is the last (no limit streams every unit).
+     * {@code fields} lists the properties to return (comma-separated; slno is
+     * always included). 204 when nothing matches.
+     */
     @GetMapping("/units")
-    public ResponseEntity<List<MsmeUnitDetails>> getByVillage(@PathParam("village") String village,
-                                                              @PathParam("mandal") String madal) {
-        List<MsmeUnitDetails> details = districtAndMandalService.getByVillage(village,madal);
-        if (details.isEmpty()) {
-            return ResponseEntity.noContent().build();
+    public void getByVillage(@RequestParam String village,
+                             @RequestParam String mandal,
+                             @RequestParam(defaultValue = "0") int after,
+                             @RequestParam(required = false) Integer limit,
+                             @RequestParam(required = false) String fields,
+                             HttpServletResponse response) throws IOException {
+        List<String> projection;
+        try {
+            projection = unitStreamService.projection(fields);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        if (limit != null && limit <= 0) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "limit must be positive");
+            return;
+        }
+
+        int written = unitStreamService.writeUnits(village, mandal, after, limit, projection, () -> {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            try {
+                return response.getOutputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (written == 0) {
+            response.setStatus(HttpStatus.NO_CONTENT.value());
         }
-        return ResponseEntity.ok(details);
     }
-}
 
+    // 304 when the client already has this list; clients revalidate on every use
+    private ResponseEntity<byte[]> conditional(HierarchyLookups.Payload payload, WebRequest request) {
+        if (request.checkNotModified(payload.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(payload.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(payload.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payload.getBody());
+    }
+}
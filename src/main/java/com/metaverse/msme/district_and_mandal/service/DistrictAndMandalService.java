@@ -1,12 +1,14 @@
 package com.metaverse.msme.district_and_mandal.service;
 
-import com.metaverse.msme.model.MsmeUnitDetails;
-
 import java.util.List;
 
 public interface DistrictAndMandalService {
     List<DistrictResponse> getAllDistricts();
     List<MandalResponse> getMandalsByDistrictName(String districtId);
-    List<MsmeUnitDetails> getByVillage(String village, String mandal);
     List<VillageResponse> getVillagesByMandalName(String mandalName);
+
+    // the same lists, serialized, for conditional GETs
+    HierarchyLookups.Payload districtsPayload();
+    HierarchyLookups.Payload mandalsPayload(String districtName);
+    HierarchyLookups.Payload villagesPayload(String mandalId);
 }
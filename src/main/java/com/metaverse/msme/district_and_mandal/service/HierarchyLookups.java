@@ -0,0 +1,187 @@
+package com.metaverse.msme.district_and_mandal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metaverse.msme.district_and_mandal.repository.DistrictRepository;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerDistrict;
+import com.metaverse.msme.gazetteer.GazetteerMandal;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import com.metaverse.msme.gazetteer.GazetteerReloadedEvent;
+import com.metaverse.msme.gazetteer.GazetteerVillage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The district, mandal and village dropdown lists, built once per gazetteer
+ * snapshot and kept as serialized JSON with a strong ETag, so a lookup is a
+ * map get and an unchanged list is answered with {@code 304 Not Modified}.
+ * <p>
+ * Rebuilt when the gazetteer reloads, i.e. when {@code district_hierarchy}
+ * changes. The district list comes from the {@code districts} table and is
+ * re-read on the same occasions. ETags hash the body, so every instance
+ * hands out the same tag for the same list.
+ */
+@Component
+public class HierarchyLookups {
+
+    private static final Logger log = LoggerFactory.getLogger(HierarchyLookups.class);
+
+    /** A serialized list with its ETag. */
+    public static final class Payload {
+
+        private final Object value;
+        private final byte[] body;
+        private final String etag;
+
+        private Payload(Object value, byte[] body, String etag) {
+            this.value = value;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> List<T> list() {
+            return (List<T>) value;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /** Quoted, strong. */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class Snapshot {
+        final String version;
+        final Payload districts;
+        // keyed by lower-cased district name
+        final Map<String, Payload> mandalsByDistrict;
+        // keyed by mandal id
+        final Map<String, Payload> villagesByMandal;
+        final Payload noVillages;
+
+        Snapshot(String version, Payload districts, Map<String, Payload> mandalsByDistrict,
+                 Map<String, Payload> villagesByMandal, Payload noVillages) {
+            this.version = version;
+            this.districts = districts;
+            this.mandalsByDistrict = mandalsByDistrict;
+            this.villagesByMandal = villagesByMandal;
+            this.noVillages = noVillages;
+        }
+    }
+
+    private final GazetteerProvider gazetteerProvider;
+    private final DistrictRepository districtRepository;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    public HierarchyLookups(GazetteerProvider gazetteerProvider,
+                            DistrictRepository districtRepository,
+                            ObjectMapper objectMapper) {
+        this.gazetteerProvider = gazetteerProvider;
+        this.districtRepository = districtRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onGazetteerReloaded(GazetteerReloadedEvent event) {
+        rebuild(event.getCurrent());
+    }
+
+    public Payload districts() {
+        return current().districts;
+    }
+
+    /** Mandals of the district, by name (case-insensitive); null when the district is unknown. */
+    public Payload mandals(String districtName) {
+        return current().mandalsByDistrict.get(key(districtName));
+    }
+
+    /** Villages of the mandal with the given id; an empty list when there is no such mandal. */
+    public Payload villages(String mandalId) {
+        Snapshot s = current();
+        return s.villagesByMandal.getOrDefault(mandalId == null ? null : mandalId.trim(), s.noVillages);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        Gazetteer gazetteer = gazetteerProvider.get();
+        // the first reload happens before this bean listens for it
+        if (s == null || !s.version.equals(gazetteer.getVersion())) {
+            s = rebuild(gazetteer);
+        }
+        return s;
+    }
+
+    private synchronized Snapshot rebuild(Gazetteer gazetteer) {
+        Snapshot s = snapshot;
+        if (s != null && s.version.equals(gazetteer.getVersion())) {
+            return s;
+        }
+
+        List<DistrictResponse> districts = districtRepository.findAll().stream()
+                .map(d -> new DistrictResponse(d.getId(), d.getName()))
+                .toList();
+
+        Map<String, Payload> mandalsByDistrict = new HashMap<>();
+        Map<String, Payload> villagesByMandal = new HashMap<>();
+        for (GazetteerDistrict district : gazetteer.getDistricts()) {
+            List<MandalResponse> mandals = new ArrayList<>(district.getMandals().size());
+            for (GazetteerMandal mandal : district.getMandals()) {
+                long mandalId = mandal.getMandalId() != null ? mandal.getMandalId() : 0L;
+                mandals.add(new MandalResponse(mandalId, mandal.getName()));
+
+                List<VillageResponse> villages = new ArrayList<>(mandal.getVillages().size());
+                for (GazetteerVillage village : mandal.getVillages()) {
+                    villages.add(new VillageResponse(
+                            village.getVillageId() != null ? village.getVillageId() : 0, village.getName()));
+                }
+                // mandal ids are unique across districts; the first one wins if not
+                villagesByMandal.putIfAbsent(String.valueOf(mandalId), payload(villages));
+            }
+            mandalsByDistrict.put(key(district.getName()), payload(mandals));
+        }
+
+        s = new Snapshot(gazetteer.getVersion(), payload(districts), mandalsByDistrict, villagesByMandal,
+                payload(List.of()));
+        snapshot = s;
+
+        log.info("Hierarchy lookups rebuilt for gazetteer {}: {} districts, {} mandals",
+                s.version, mandalsByDistrict.size(), villagesByMandal.size());
+        return s;
+    }
+
+    private Payload payload(List<?> value) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            return new Payload(value, body, '"' + HexFormat.of().formatHex(sha256(body), 0, 16) + '"');
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize hierarchy lookup", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
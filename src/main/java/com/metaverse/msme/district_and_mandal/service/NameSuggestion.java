@@ -0,0 +1,16 @@
+package com.metaverse.msme.district_and_mandal.service;
+
+/**
+ * One typeahead suggestion. {@code type} is MANDAL or VILLAGE; {@code id} the
+ * mandal or village id. {@code match} says how the query matched the name or
+ * alias: EXACT, PREFIX, or FUZZY with {@code typos} edits.
+ */
+public record NameSuggestion(String type,
+                             Long id,
+                             String name,
+                             String aliasName,
+                             Long mandalId,
+                             String mandalName,
+                             String districtName,
+                             String match,
+                             int typos) {}
@@ -0,0 +1,216 @@
+package com.metaverse.msme.district_and_mandal.service;
+
+import com.metaverse.msme.address.AddressNormalizer;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerDistrict;
+import com.metaverse.msme.gazetteer.GazetteerMandal;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import com.metaverse.msme.gazetteer.GazetteerReloadedEvent;
+import com.metaverse.msme.gazetteer.GazetteerVillage;
+import com.metaverse.msme.matching.PrefixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Typeahead over mandal and village names and aliases, answered from a
+ * {@link PrefixTrie} compiled once per gazetteer snapshot.
+ * <p>
+ * Every normalized name and alias is a key, and so is each of its later words
+ * on, so "savar" finds "Batti Savargaon". The query may be misspelt: 1 typo is
+ * allowed from 3 characters, 2 from 6. Suggestions rank exact matches first,
+ * then prefix matches, then fuzzy ones by typos; within those, matches at the
+ * start of a name before inner words, names before aliases, then shorter names.
+ */
+@Component
+public class NameTypeahead {
+
+    private static final Logger log = LoggerFactory.getLogger(NameTypeahead.class);
+
+    private static final int MAX_TYPOS = 2;
+
+    private static final String EXACT = "EXACT";
+    private static final String PREFIX = "PREFIX";
+    private static final String FUZZY = "FUZZY";
+
+    /** What a trie key stands for. */
+    private static final class Term {
+        final NameSuggestion name;
+        final String districtKey;
+        // key is a later word of the name, not its start
+        final boolean inner;
+        final boolean alias;
+        // position among all terms by ORDER; ties between hits of equal match quality go by it
+        int order;
+
+        Term(NameSuggestion name, String districtKey, boolean inner, boolean alias) {
+            this.name = name;
+            this.districtKey = districtKey;
+            this.inner = inner;
+            this.alias = alias;
+        }
+    }
+
+    private static final Comparator<Term> ORDER = Comparator
+            .comparing((Term t) -> t.inner)
+            .thenComparing(t -> t.alias)
+            .thenComparingInt(t -> t.name.name().length())
+            .thenComparing(t -> t.name.name());
+
+    private static final class Hits {
+        long[] values = new long[64];
+        int size;
+
+        void add(long hit) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = hit;
+        }
+    }
+
+    private static final class Snapshot {
+        final String version;
+        final PrefixTrie<Term> trie;
+        final Term[] terms;
+
+        Snapshot(String version, PrefixTrie<Term> trie, Term[] terms) {
+            this.version = version;
+            this.trie = trie;
+            this.terms = terms;
+        }
+    }
+
+    private final GazetteerProvider gazetteerProvider;
+    private final AddressNormalizer normalizer;
+
+    private volatile Snapshot snapshot;
+
+    public NameTypeahead(GazetteerProvider gazetteerProvider, AddressNormalizer normalizer) {
+        this.gazetteerProvider = gazetteerProvider;
+        this.normalizer = normalizer;
+    }
+
+    @EventListener
+    public void onGazetteerReloaded(GazetteerReloadedEvent event) {
+        rebuild(event.getCurrent());
+    }
+
+    /**
+     * Up to {@code limit} suggestions for {@code query}, best first.
+     *
+     * @param type     MANDAL or VILLAGE to suggest only those; null for both
+     * @param district restricts suggestions to this district (case-insensitive); null for all
+     * @param maxTypos caps the length-based allowance of typos
+     */
+    public List<NameSuggestion> suggest(String query, String type, String district, int maxTypos, int limit) {
+        String q = query == null ? "" : normalizer.normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int typos = Math.min(Math.max(maxTypos, 0), q.length() <= 2 ? 0 : q.length() <= 5 ? 1 : MAX_TYPOS);
+        String districtKey = district == null || district.isBlank() ? null : normalizer.normalize(district);
+
+        // a hit is (rank, typos, term order) packed in a long, so sorting them ranks them
+        Snapshot s = current();
+        Hits hits = new Hits();
+        s.trie.search(q, typos, (key, distance, term) -> {
+            if (type != null && !type.equalsIgnoreCase(term.name.type())) return;
+            if (districtKey != null && !districtKey.equals(term.districtKey)) return;
+
+            long rank = distance > 0 ? 2 : key.equals(q) && !term.inner ? 0 : 1;
+            hits.add(rank << 40 | (long) distance << 32 | term.order);
+        });
+        Arrays.sort(hits.values, 0, hits.size);
+
+        // the first hit of a name is its best
+        List<NameSuggestion> suggestions = new ArrayList<>(Math.min(limit, hits.size));
+        Set<NameSuggestion> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < hits.size && suggestions.size() < limit; i++) {
+            long hit = hits.values[i];
+            NameSuggestion n = s.terms[(int) hit].name;
+            if (!seen.add(n)) continue;
+
+            int rank = (int) (hit >>> 40);
+            String match = rank == 0 ? EXACT : rank == 1 ? PREFIX : FUZZY;
+            suggestions.add(new NameSuggestion(n.type(), n.id(), n.name(), n.aliasName(), n.mandalId(),
+                    n.mandalName(), n.districtName(), match, (int) (hit >>> 32) & 0xff));
+        }
+        return suggestions;
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        Gazetteer gazetteer = gazetteerProvider.get();
+        // the first reload happens before this bean listens for it
+        if (s == null || !s.version.equals(gazetteer.getVersion())) {
+            s = rebuild(gazetteer);
+        }
+        return s;
+    }
+
+    private synchronized Snapshot rebuild(Gazetteer gazetteer) {
+        Snapshot s = snapshot;
+        if (s != null && s.version.equals(gazetteer.getVersion())) {
+            return s;
+        }
+
+        PrefixTrie<Term> trie = new PrefixTrie<>();
+        List<Term> terms = new ArrayList<>();
+        for (GazetteerDistrict district : gazetteer.getDistricts()) {
+            String districtKey = normalizer.normalize(district.getName());
+            for (GazetteerMandal mandal : district.getMandals()) {
+                NameSuggestion m = new NameSuggestion("MANDAL", mandal.getMandalId(), mandal.getName(),
+                        mandal.getAliasName(), mandal.getMandalId(), mandal.getName(), district.getName(), null, 0);
+                addKeys(trie, terms, m, districtKey);
+
+                for (GazetteerVillage village : mandal.getVillages()) {
+                    Long villageId = village.getVillageId() == null ? null : village.getVillageId().longValue();
+                    NameSuggestion v = new NameSuggestion("VILLAGE", villageId, village.getName(),
+                            village.getAliasName(), mandal.getMandalId(), mandal.getName(), district.getName(),
+                            null, 0);
+                    addKeys(trie, terms, v, districtKey);
+                }
+            }
+        }
+        trie.build();
+
+        terms.sort(ORDER);
+        for (int i = 0; i < terms.size(); i++) terms.get(i).order = i;
+
+        s = new Snapshot(gazetteer.getVersion(), trie, terms.toArray(new Term[0]));
+        snapshot = s;
+
+        log.info("Name typeahead rebuilt for gazetteer {}: {} keys", s.version, trie.size());
+        return s;
+    }
+
+    private void addKeys(PrefixTrie<Term> trie, List<Term> terms, NameSuggestion name, String districtKey) {
+        Set<String> keys = new HashSet<>();
+        addKeys(trie, terms, name, districtKey, name.name(), false, keys);
+        if (name.aliasName() != null) {
+            addKeys(trie, terms, name, districtKey, name.aliasName(), true, keys);
+        }
+    }
+
+    private void addKeys(PrefixTrie<Term> trie, List<Term> terms, NameSuggestion name, String districtKey,
+                         String text, boolean alias, Set<String> keys) {
+        String norm = normalizer.normalize(text);
+        if (norm.isEmpty()) return;
+
+        // the whole name, then from each later word on
+        for (int start = 0; start >= 0; ) {
+            String key = norm.substring(start);
+            if (keys.add(key)) {
+                Term term = new Term(name, districtKey, start > 0, alias);
+                terms.add(term);
+                trie.add(key, term);
+            }
+            int space = norm.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.metaverse.msme.district_and_mandal.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.metaverse.msme.model.MsmeUnitDetails;
+import jakarta.persistence.Column;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Streams the units of a village as a JSON array, straight from a database
+ * cursor into the response: each row is written as it is fetched, so memory
+ * stays flat however big the village is.
+ * <p>
+ * Pages are keyset pages on {@code slno}: a page holds the first {@code limit}
+ * units with {@code slno > after}, in slno order, and the next page starts
+ * after the last slno received. A page shorter than {@code limit} is the last.
+ * {@code fields} picks the properties written (always including {@code slno});
+ * only their columns are selected.
+ */
+@Service
+public class UnitStreamService {
+
+    /** MsmeUnitDetails property -> msme_unit_details column, in entity order. */
+    private static final Map<String, String> COLUMNS = columns();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+
+    public UnitStreamService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${units.stream.fetch-size:500}") int fetchSize) {
+        // own template: a fetch size only turns into a server-side cursor inside a transaction
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Checks {@code fields} (comma-separated property names, null or blank
+     * for all) and returns the properties to write.
+     *
+     * @throws IllegalArgumentException on an unknown property
+     */
+    public List<String> projection(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return new ArrayList<>(COLUMNS.keySet());
+        }
+        Set<String> picked = new LinkedHashSet<>();
+        picked.add("slno");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!COLUMNS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "'; known fields: " + COLUMNS.keySet());
+            }
+            picked.add(name);
+        }
+        return new ArrayList<>(picked);
+    }
+
+    /**
+     * Writes the matching units as a JSON array of objects with the
+     * {@code projection} properties. {@code out} is opened at the first row;
+     * when nothing matches it is never opened.
+     *
+     * @param limit page size; null streams every match
+     * @return number of units written
+     */
+    public int writeUnits(String village, String mandal, int after, Integer limit, List<String> projection,
+                          Supplier<OutputStream> out) {
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < projection.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(COLUMNS.get(projection.get(i)));
+        }
+        // upper() like the derived IgnoreCase query this replaces, so the same index serves both
+        sql.append(" FROM msme_unit_details WHERE upper(village) = upper(?) AND upper(mandal) = upper(?) " +
+                "AND slno > ? ORDER BY slno");
+        List<Object> args = new ArrayList<>(List.of(village, mandal, after));
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+
+        Integer written = readOnly.execute(status -> {
+            RowWriter writer = new RowWriter(projection, out);
+            jdbcTemplate.query(sql.toString(), writer::write, args.toArray());
+            return writer.finish();
+        });
+        return written == null ? 0 : written;
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private final class RowWriter {
+
+        private final List<String> projection;
+        private final Supplier<OutputStream> out;
+        private JsonGenerator json;
+        private int rows;
+
+        RowWriter(List<String> projection, Supplier<OutputStream> out) {
+            this.projection = projection;
+            this.out = out;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            try {
+                if (json == null) {
+                    json = objectMapper.getFactory().createGenerator(out.get());
+                    json.writeStartArray();
+                }
+                json.writeStartObject();
+                for (int i = 0; i < projection.size(); i++) {
+                    String property = projection.get(i);
+                    if (property.equals("slno")) {
+                        json.writeNumberField(property, rs.getInt(i + 1));
+                    } else {
+                        json.writeStringField(property, rs.getString(i + 1));
+                    }
+                }
+                json.writeEndObject();
+                rows++;
+            } catch (IOException e) {
+                // client went away; stop fetching
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int finish() {
+            if (json == null) return 0;
+            try {
+                json.writeEndArray();
+                json.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        }
+    }
+
+    private static Map<String, String> columns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (Field field : MsmeUnitDetails.class.getDeclaredFields()) {
+            Column column = field.getAnnotation(Column.class);
+            if (column != null) {
+                columns.put(field.getName(), physicalName(column.name()));
+            }
+        }
+        return Collections.unmodifiableMap(columns);
+    }
+
+    // the column Hibernate maps the name to under Spring Boot's default
+    // CamelCaseToUnderscoresNamingStrategy, e.g. natureOfbusiness -> nature_ofbusiness
+    private static String physicalName(String name) {
+        StringBuilder sb = new StringBuilder(name);
+        for (int i = 1; i < sb.length() - 1; i++) {
+            if (Character.isLowerCase(sb.charAt(i - 1)) && Character.isUpperCase(sb.charAt(i))
+                    && Character.isLowerCase(sb.charAt(i + 1))) {
+                sb.insert(i++, '_');
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
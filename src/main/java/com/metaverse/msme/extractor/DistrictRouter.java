@@ -0,0 +1,65 @@
+package com.metaverse.msme.extractor;
+
+import com.metaverse.msme.address.AddressNormalizer;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerDistrict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Picks the district whose compiled index an address is parsed against.
+ * <p>
+ * In order: the unit's own district value (exact name, normalized name, or a
+ * district name inside it such as "Adilabad Dist"), then a single district
+ * named in the address tokens, then the configured default. Every step is a
+ * hash lookup or one phrase-matcher pass, so routing cost does not grow with
+ * the number of districts or villages loaded.
+ */
+@Component
+public class DistrictRouter {
+
+    private final AddressNormalizer normalizer;
+    private final String defaultDistrict;
+
+    public DistrictRouter(AddressNormalizer normalizer,
+                          @Value("${address.default-district:Adilabad}") String defaultDistrict) {
+        this.normalizer = normalizer;
+        this.defaultDistrict = defaultDistrict;
+    }
+
+    /**
+     * @param districtHint district as given by the caller or the unit row; may be null
+     * @param tokens       meaningful tokens of the address
+     * @return canonical gazetteer district name, or {@code null} when nothing
+     * matches and the default district is not loaded
+     */
+    public String route(Gazetteer gazetteer, String districtHint, List<String> tokens) {
+
+        if (districtHint != null && !districtHint.isBlank()) {
+            GazetteerDistrict d = gazetteer.district(districtHint);
+            if (d == null) {
+                String hintNorm = normalizer.normalize(districtHint);
+                d = gazetteer.findDistrictByNorm(hintNorm);
+                if (d == null) {
+                    d = single(gazetteer, Arrays.asList(hintNorm.split(" ")));
+                }
+            }
+            if (d != null) return d.getName();
+        }
+
+        GazetteerDistrict fromAddress = single(gazetteer, tokens);
+        if (fromAddress != null) return fromAddress.getName();
+
+        GazetteerDistrict fallback = gazetteer.district(defaultDistrict);
+        return fallback == null ? null : fallback.getName();
+    }
+
+    // the one district named in the tokens, or null for none / several
+    private GazetteerDistrict single(Gazetteer gazetteer, List<String> tokens) {
+        Set<GazetteerDistrict> found = new LinkedHashSet<>(2);
+        gazetteer.getDistrictPhrases().scan(tokens, (start, end, d) -> found.add(d));
+        return found.size() == 1 ? found.iterator().next() : null;
+    }
+}
@@ -33,6 +33,15 @@ public class MandalDetectionResult {
         );
     }
 
+    /** {@code mandal}, picked among the {@code mandals} the address matched by the unit's location. */
+    public static MandalDetectionResult nearest(String mandal, Set<String> mandals) {
+        return new MandalDetectionResult(
+                MandalDetectionStatus.NEAREST_MANDAL,
+                mandal,
+                mandals
+        );
+    }
+
     public static MandalDetectionResult multipleDistricts(Set<String> mandals) {
         return new MandalDetectionResult(
                 MandalDetectionStatus.MULTIPLE_DISTRICTS,
@@ -3,6 +3,8 @@ package com.metaverse.msme.extractor;
 public enum MandalDetectionStatus {
     SINGLE_MANDAL,
     MULTIPLE_MANDALS,
+    // one of MULTIPLE_MANDALS, picked by the unit's coordinates
+    NEAREST_MANDAL,
     MANDAL_NOT_FOUND,
     MULTIPLE_DISTRICTS
 }
@@ -1,11 +1,12 @@
 package com.metaverse.msme.extractor;
 
 import com.metaverse.msme.address.AddressNormalizer;
-import com.metaverse.msme.model.DistrictHierarchyEntity;
-import com.metaverse.msme.repository.DistrictHierarchyRepository;
-import jakarta.annotation.PostConstruct;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerDistrict;
+import com.metaverse.msme.gazetteer.GazetteerMandal;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -13,25 +14,42 @@ import java.util.*;
 @Component
 public class MandalDetector {
 
+    private static final Logger log = LoggerFactory.getLogger(MandalDetector.class);
+
+    // Extra stopwords specifically for mandal detection
+    private static final Set<String> EXTRA_STOP = Set.of(
+            "city", "district", "town", "village",
+            "block", "road", "street"
+    );
+
+    // lower-cased master district name -> canonical name
+    private static final Map<String, String> DISTRICTS_BY_KEY = new HashMap<>();
+
+    static {
+        for (String d : telanganaDistricts()) {
+            DISTRICTS_BY_KEY.put(d.toLowerCase(Locale.ROOT), d);
+        }
+    }
+
     private final AddressNormalizer normalizer;
-    private final DistrictHierarchyRepository repository;
-    private final Map<String, DistrictHierarchyEntity> extractorCache = new HashMap<>();
+    private final GazetteerProvider gazetteerProvider;
 
     public MandalDetector(AddressNormalizer normalizer,
-                          DistrictHierarchyRepository repository) {
+                          GazetteerProvider gazetteerProvider) {
         this.normalizer = normalizer;
-        this.repository = repository;
+        this.gazetteerProvider = gazetteerProvider;
     }
 
-    @PostConstruct
-    public void init() {
-        List<DistrictHierarchyEntity> docs = repository.findAll();
-        for (DistrictHierarchyEntity d : docs) {
-            extractorCache.put(d.getDistrictName(),d);
-        }
-}
-
     public MandalDetectionResult detectMandal(String district, String rawAddress) {
+        return detectMandal(gazetteerProvider.get(), district, rawAddress);
+    }
+
+    /**
+     * Same as {@link #detectMandal(String, String)} but against a snapshot the
+     * caller already holds, so one parse resolves mandal and village against
+     * the same gazetteer version.
+     */
+    public MandalDetectionResult detectMandal(Gazetteer gazetteer, String district, String rawAddress) {
 
         if (district == null || rawAddress == null) {
             return MandalDetectionResult.notFound();
@@ -40,17 +58,26 @@ public class MandalDetector {
     /* ---------------------------------------------------------
        STEP 1 — CLEAN TOKENS (from normalizer)
        --------------------------------------------------------- */
-        List<String> rawTokens = normalizer.meaningfulTokenSet(rawAddress);
-        List<String> strings = telanganaDistricts(); // master districts
+        return detectMandal(gazetteer, district, normalizer.meaningfulTokenSet(rawAddress));
+    }
+
+    /**
+     * Same as {@link #detectMandal(Gazetteer, String, String)} for an address
+     * the caller has already split with {@code meaningfulTokenSet}, so the
+     * tokens are shared with district routing and village detection.
+     */
+    public MandalDetectionResult detectMandal(Gazetteer gazetteer, String district, List<String> rawTokens) {
+
+        if (district == null || rawTokens == null) {
+            return MandalDetectionResult.notFound();
+        }
+
         Set<String> districts = new HashSet<>();
 
         for (String token : rawTokens) {
-            String normToken = token.trim().toLowerCase();
-
-            for (String district1 : strings) {
-                if (normToken.equalsIgnoreCase(district1)) {
-                    districts.add(district1); // add canonical district name
-                }
+            String canonical = DISTRICTS_BY_KEY.get(token.trim().toLowerCase(Locale.ROOT));
+            if (canonical != null) {
+                districts.add(canonical); // add canonical district name
             }
         }
 
@@ -58,28 +85,15 @@ public class MandalDetector {
             return MandalDetectionResult.multipleDistricts(districts);
         }
 
-        System.out.println("RAW TOKENS = " + rawTokens);
-
-        for (String tok : rawTokens) {
-            String n = normalizer.normalize(tok);
-            String p = phoneticNormalize(n);
-            System.out.println("TOKEN => raw: [" + tok + "], norm: [" + n + "], phonetic: [" + p + "]");
-        }
-
+        log.debug("RAW TOKENS = {}", rawTokens);
 
         // Convert tokens to phonetic-normalized clean tokens
         Set<String> tokens = new HashSet<>();
 
-        String districtNormPh = phoneticNormalize(normalizer.normalize(district));
-
-        // Extra stopwords specifically for mandal detection
-        Set<String> EXTRA_STOP = Set.of(
-                "city", "district", "town", "village",
-                "block", "road", "street"
-        );
+        String districtNormPh = normalizer.phoneticNormalize(normalizer.normalize(district));
 
         for (String tok : rawTokens) {
-            String t = phoneticNormalize(normalizer.normalize(tok));
+            String t = normalizer.phoneticNormalize(normalizer.normalize(tok));
 
             if (t.isBlank()) continue;
 
@@ -99,13 +113,13 @@ public class MandalDetector {
         }
 
     /* ---------------------------------------------------------
-       STEP 2 — READ DISTRICT HIERARCHY
+       STEP 2 — READ DISTRICT HIERARCHY (compiled gazetteer)
        --------------------------------------------------------- */
-        DistrictHierarchyEntity opt = extractorCache.get("Adilabad");
-
+        GazetteerDistrict hierarchy = gazetteer.district(district);
 
-        JSONObject root = new JSONObject(opt.getHierarchyJson());
-        JSONArray mandalsArr = root.getJSONArray("mandals");
+        if (hierarchy == null) {
+            return MandalDetectionResult.notFound();
+        }
 
         Set<String> exactMatches = new LinkedHashSet<>();
         Set<String> fuzzyMatches = new LinkedHashSet<>();
@@ -116,26 +130,23 @@ public class MandalDetector {
     /* ---------------------------------------------------------
        STEP 3 — DETECT MANDAL
        --------------------------------------------------------- */
-        for (int i = 0; i < mandalsArr.length(); i++) {
-
-            JSONObject mandalObj = mandalsArr.getJSONObject(i);
+        List<GazetteerMandal> mandals = hierarchy.getMandals();
 
-            String mandalName = mandalObj.getString("mandalName");
+        // mandals with a name word or alias within fuzzy distance of a token
+        boolean[] fuzzyHit = new boolean[mandals.size()];
+        for (String t : tokens) {
+            hierarchy.getMandalIndex().forEachMatch(t, i -> fuzzyHit[i] = true);
+        }
 
-            // NAME normalized & phonetic
-            String mandalNorm = phoneticNormalize(
-                    normalizer.normalize(mandalName));
+        for (int i = 0; i < mandals.size(); i++) {
 
-            // ALIAS normalized & phonetic
-            String aliasNorm = null;
-            if (mandalObj.has("aliasName") && !mandalObj.isNull("aliasName")) {
-                aliasNorm = phoneticNormalize(
-                        normalizer.normalize(mandalObj.getString("aliasName")));
-            }
+            GazetteerMandal mandal = mandals.get(i);
+            String mandalName = mandal.getName();
 
-            // split words like "adilabad rural"
-            Set<String> mandalWords =
-                    new HashSet<>(Arrays.asList(mandalNorm.split("\\s+")));
+            // NAME / ALIAS normalized & phonetic, word split — precompiled
+            String mandalNorm = mandal.getPhonetic();
+            String aliasNorm = mandal.getAliasPhonetic();
+            Set<String> mandalWords = mandal.getWords();
 
             boolean isDistrictHQ = mandalNorm.equals(districtNormPh);
 
@@ -158,29 +169,11 @@ public class MandalDetector {
 
             /* ------------------ FUZZY MATCH ---------------------- */
 
-            for (String t : tokens) {
-
-                // fuzzy by name words
-                for (String mw : mandalWords) {
-                    if (similarity(t, mw) >= 0.90) {
-                        if (isDistrictHQ) {
-                            hqFuzzyCandidate = mandalName;
-                        } else {
-                            fuzzyMatches.add(mandalName);
-                        }
-                        break;
-                    }
-                }
-
-                // fuzzy by alias
-                if (aliasNorm != null && similarity(t, aliasNorm) >= 0.90) {
-
-                    if (isDistrictHQ) {
-                        hqFuzzyCandidate = mandalName;
-                    } else {
-                        fuzzyMatches.add(mandalName);
-                    }
-                    break;
+            if (fuzzyHit[i]) {
+                if (isDistrictHQ) {
+                    hqFuzzyCandidate = mandalName;
+                } else {
+                    fuzzyMatches.add(mandalName);
                 }
             }
         }
@@ -222,30 +215,6 @@ public class MandalDetector {
         return MandalDetectionResult.notFound();
     }
 
-    private double similarity(String s1, String s2) {
-        int dist = levenshtein(s1, s2);
-        int max = Math.max(s1.length(), s2.length());
-        return max == 0 ? 1.0 : 1.0 - ((double) dist / max);
-    }
-
-    private int levenshtein(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) dp[i][0] = i;
-        for (int j = 0; j <= s2.length(); j++) dp[0][j] = j;
-
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
-                );
-            }
-        }
-        return dp[s1.length()][s2.length()];
-    }
-
-
     private boolean matchesByNameOrAlias(
             String tokenNorm,
             String nameNorm,
@@ -264,7 +233,7 @@ public class MandalDetector {
         String[] aliases = aliasRaw.split(",");
 
         for (String a : aliases) {
-            String aliasNorm = phoneticNormalize(normalizer.normalize(a.trim()));
+            String aliasNorm = normalizer.phoneticNormalize(normalizer.normalize(a.trim()));
 
             if (tokenNorm.equals(aliasNorm)) {
                 return true;
@@ -273,11 +242,6 @@ public class MandalDetector {
         return false;
     }
 
-    private String phoneticNormalize(String s) {
-        return s.replace("oo", "u")
-                .replace("oor", "ur");
-    }
-
     private static List<String> telanganaDistricts() {
         return  List.of(
                 "Adilabad",
@@ -1,27 +1,31 @@
 package com.metaverse.msme.extractor;
 
-import com.metaverse.msme.model.MsmeUnitDetails;
+import com.metaverse.msme.model.UnitAddressRow;
 import com.metaverse.msme.repository.MsmeUnitDetailsRepository;
 import com.metaverse.msme.service.AddressParseResult;
 import com.metaverse.msme.service.AddressParseService;
+import com.metaverse.msme.service.JobProgress;
+import com.metaverse.msme.service.ParseExecutors;
+import com.metaverse.msme.service.UnitResolutionStore;
+import com.metaverse.msme.service.VillageCentroids;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.DeferredSXSSFSheet;
+import org.apache.poi.xssf.streaming.DeferredSXSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 @Service
 public class MsmeExcelService {
@@ -33,132 +37,185 @@ public class MsmeExcelService {
 
     private final MsmeUnitDetailsRepository repository;
     private final AddressParseService addressParseService;
+    private final UnitResolutionStore resolutionStore;
+    private final ParseExecutors parseExecutors;
 
     @Autowired
     public MsmeExcelService(MsmeUnitDetailsRepository repository,
-                            AddressParseService addressParseService) {
+                            AddressParseService addressParseService,
+                            UnitResolutionStore resolutionStore,
+                            ParseExecutors parseExecutors) {
         this.repository = repository;
         this.addressParseService = addressParseService;
+        this.resolutionStore = resolutionStore;
+        this.parseExecutors = parseExecutors;
     }
 
     /**
      * IMPORTANT: This implementation uses ID-based paging (no OFFSET).
-     * Ensure you add the following repository method (example) to MsmeUnitDetailsRepository:
+     * Chunks come from MsmeUnitDetailsRepository.findNextExportChunk, which
+     * selects only the columns written to the sheet into UnitAddressRow:
      *
-     * List<MsmeUnitDetails> findNextChunk(Integer afterSlno, Pageable pageable);
+     * @Query("SELECT new ...UnitAddressRow(u.slno, ...) FROM MsmeUnitDetails u WHERE u.slno > :after ORDER BY u.slno ASC")
+     * List<UnitAddressRow> findNextExportChunk(@Param("after") Integer after, Pageable pageable);
      *
-     * Example JPQL:
-     * @Query("SELECT u FROM MsmeUnitDetails u WHERE u.slno > :after ORDER BY u.slno ASC")
-     * List<MsmeUnitDetails> findNextChunk(@Param("after") Integer after, Pageable pageable);
+     * The workbook is streamed: rows are generated while the xlsx is being
+     * written to {@code out}, so the first bytes leave before the first chunk
+     * is even parsed and only the SXSSF row window is held in memory.
+     *
+     * Parse results come from UnitResolutionStore (kept by the bulk village
+     * resolution job); only units without a current stored result are parsed.
      *
      * @param startAfterSlno  start processing after this slno (0 to start from beginning)
      * @param totalRecords    stop after processing this many records (use Integer.MAX_VALUE for no limit)
+     * @param out             destination, typically the servlet response stream; not closed
      */
-    public byte[] generateExcel(Integer startAfterSlno, int totalRecords) {
-
-        ExecutorService pool = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
-
-        try (
-                SXSSFWorkbook workbook = new SXSSFWorkbook(1000); // keep a larger window to reduce flush I/O
-                ByteArrayOutputStream out = new ByteArrayOutputStream()
-        ) {
-
-            workbook.setCompressTempFiles(true);
-            Sheet sheet = workbook.createSheet("MSME ADDRESS PARSE");
-            createHeader(sheet);
+    public void writeExcel(Integer startAfterSlno, int totalRecords, OutputStream out) {
+        writeExcel(startAfterSlno, totalRecords, out, JobProgress.NONE);
+    }
 
-            int rowIndex = 1;
-            int processed = 0;
-            Integer lastId = Objects.requireNonNullElse(startAfterSlno, 0);
+    /**
+     * Same as {@link #writeExcel(Integer, int, OutputStream)}, reporting rows
+     * to {@code progress}. Cancelling aborts the export after the current
+     * chunk with a {@link CancellationException}; the output is incomplete.
+     */
+    public void writeExcel(Integer startAfterSlno, int totalRecords, OutputStream out, JobProgress progress) {
 
-            while (processed < totalRecords) {
+        // shared with every other parse path, so concurrent exports do not multiply threads
+        Executor pool = parseExecutors.cpu();
 
-                // fetch next chunk without OFFSET
-                List<MsmeUnitDetails> chunk = repository.findNextChunk(lastId, PageRequest.of(0, CHUNK_SIZE));
+        // deferred: rows are produced by the generator at write time, straight into the zip stream
+        try (DeferredSXSSFWorkbook workbook = new DeferredSXSSFWorkbook(1000)) { // keep a larger window to reduce flush I/O
+            DeferredSXSSFSheet sheet = workbook.createSheet("MSME ADDRESS PARSE");
+            setColumnWidths(sheet);
 
-                if (chunk == null || chunk.isEmpty()) {
-                    break;
-                }
+            sheet.setRowGenerator(s -> {
+                createHeader(s);
 
-                // parse in parallel but preserve order
-                List<CompletableFuture<AddressParseResult>> futures = new ArrayList<>(chunk.size());
+                int rowIndex = 1;
+                int processed = 0;
+                Integer lastId = Objects.requireNonNullElse(startAfterSlno, 0);
 
-                for (MsmeUnitDetails u : chunk) {
-                    CompletableFuture<AddressParseResult> f = CompletableFuture.supplyAsync(() -> parseSafely(u), pool);
-                    futures.add(f);
+                // the count is only worth its scan when someone is watching
+                if (progress != JobProgress.NONE) {
+                    progress.total(Math.min(totalRecords, repository.countBySlnoGreaterThan(lastId)));
                 }
 
-                // wait for all to complete
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-                // collect results in same order as chunk
-                List<AddressParseResult> results = futures.stream()
-                        .map(CompletableFuture::join)
-                        .collect(Collectors.toList());
-
-                for (int i = 0; i < chunk.size(); i++) {
-                    System.out.println("Processed row number: " + rowIndex);
-                    MsmeUnitDetails u = chunk.get(i);
-                    AddressParseResult result = results.get(i);
-
-                    Row row = sheet.createRow(rowIndex++);
-
-                    row.createCell(0).setCellValue(value(u.getSlno()));
-                    row.createCell(1).setCellValue(value(u.getDepartmentName()));
-                    row.createCell(2).setCellValue(value(u.getUnitName()));
-                    row.createCell(3).setCellValue(value(u.getUnitAddress()));
-                    row.createCell(4).setCellValue(value(u.getVillage()));
-                    row.createCell(5).setCellValue(value(result.getVillage()));
-                    row.createCell(6).setCellValue(value(result.getMandal()));
-                    row.createCell(7).setCellValue(value(u.getDistrict()));
-                    row.createCell(8).setCellValue(result.getVillageStatus() != null ? result.getVillageStatus().name() :  result.getMandalStatus().name());
-                    row.createCell(9).setCellValue(buildDetails(result));
-
-                    lastId = u.getSlno();
+                while (processed < totalRecords) {
+
+                    if (progress.isCancelled()) {
+                        throw new CancellationException("Excel export cancelled after slno " + lastId);
+                    }
+
+                    // fetch next chunk without OFFSET
+                    List<UnitAddressRow> chunk = repository.findNextExportChunk(lastId, PageRequest.of(0, CHUNK_SIZE));
+
+                    if (chunk == null || chunk.isEmpty()) {
+                        break;
+                    }
+
+                    // stored results first; parse only what is missing or stale
+                    Map<Integer, AddressParseResult> stored =
+                            resolutionStore.findCurrent(lastId, chunk.get(chunk.size() - 1).getSlno());
+
+                    List<UnitAddressRow> missing = new ArrayList<>();
+                    for (UnitAddressRow u : chunk) {
+                        if (!stored.containsKey(u.getSlno()) && hasAddress(u)) missing.add(u);
+                    }
+                    Map<Integer, AddressParseResult> parsed = parseMissing(missing, pool);
+
+                    List<AddressParseResult> results = new ArrayList<>(chunk.size());
+                    for (UnitAddressRow u : chunk) {
+                        AddressParseResult known = stored.get(u.getSlno());
+                        if (known == null) known = parsed.get(u.getSlno());
+                        results.add(known != null ? known : AddressParseResult.fromMandalResult(MandalDetectionResult.notFound()));
+                    }
+
+                    for (int i = 0; i < chunk.size(); i++) {
+                        UnitAddressRow u = chunk.get(i);
+                        AddressParseResult result = results.get(i);
+
+                        Row row = s.createRow(rowIndex++);
+
+                        row.createCell(0).setCellValue(value(u.getSlno()));
+                        row.createCell(1).setCellValue(value(u.getDepartmentName()));
+                        row.createCell(2).setCellValue(value(u.getUnitName()));
+                        row.createCell(3).setCellValue(value(u.getUnitAddress()));
+                        row.createCell(4).setCellValue(value(u.getVillage()));
+                        row.createCell(5).setCellValue(value(result.getVillage()));
+                        row.createCell(6).setCellValue(value(result.getMandal()));
+                        row.createCell(7).setCellValue(value(result.getDistrict() != null ? result.getDistrict() : u.getDistrict()));
+                        row.createCell(8).setCellValue(result.getVillageStatus() != null ? result.getVillageStatus().name() :  result.getMandalStatus().name());
+                        row.createCell(9).setCellValue(buildDetails(result));
+
+                        lastId = u.getSlno();
+                    }
+
+                    processed += chunk.size();
+                    progress.advance(chunk.size());
+
+                    log.debug("Processed {} records, lastId={}, parsed {} of {} in this chunk",
+                            processed, lastId, missing.size(), chunk.size());
                 }
-
-                processed += chunk.size();
-
-                log.debug("Processed {} records, lastId={}", processed, lastId);
-            }
-
-            setColumnWidths(sheet);
+            });
 
             workbook.write(out);
             workbook.dispose();
-
-            return out.toByteArray();
+            out.flush();
 
         } catch (Exception e) {
+            // POI wraps whatever the row generator throws
+            if (progress.isCancelled()) {
+                throw new CancellationException("Excel export cancelled");
+            }
+            // headers are already sent by now; the client sees a truncated file
             log.error("Excel generation failed", e);
             throw new RuntimeException("Excel generation failed", e);
-        } finally {
-            pool.shutdown();
-            try {
-                if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
-                    pool.shutdownNow();
-                }
-            } catch (InterruptedException ignored) {
-                pool.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
         }
     }
 
     // ------------------ HELPERS ------------------
 
-    private AddressParseResult parseSafely(MsmeUnitDetails u) {
+    /**
+     * Parses the units of a chunk that have no current stored result, keyed by
+     * slno. Units with the same address signature are resolved once; distinct
+     * signatures run in parallel on {@code pool}.
+     */
+    private Map<Integer, AddressParseResult> parseMissing(List<UnitAddressRow> missing, Executor pool) {
+        Map<Integer, AddressParseResult> parsed = new HashMap<>();
+        if (missing.isEmpty()) return parsed;
         try {
-            if (u.getUnitAddress() != null && !"null".equalsIgnoreCase(u.getUnitAddress())) {
-                // if district is static, consider caching a parse context in AddressParseService
-                return addressParseService.parse("Adilabad", u.getUnitAddress());
+            // the unit's district column routes the parse; the address decides when it is blank
+            List<AddressParseResult> results = addressParseService.parseAll(
+                    missing, UnitAddressRow::getDistrict, UnitAddressRow::getUnitAddress,
+                    u -> VillageCentroids.Location.of(u.getLatitude(), u.getLongitude()), pool).getResults();
+            for (int i = 0; i < missing.size(); i++) {
+                parsed.put(missing.get(i).getSlno(), results.get(i));
+            }
+        } catch (Exception ex) {
+            // one bad address fails its whole chunk; retry one by one so only that unit goes unparsed
+            log.debug("grouped parse failed after slno={}: {}", missing.get(0).getSlno(), ex.getMessage());
+            for (UnitAddressRow u : missing) {
+                parsed.put(u.getSlno(), parseSafely(u));
             }
+        }
+        return parsed;
+    }
+
+    private AddressParseResult parseSafely(UnitAddressRow u) {
+        try {
+            return addressParseService.parse(u.getDistrict(), u.getUnitAddress(),
+                    VillageCentroids.Location.of(u.getLatitude(), u.getLongitude()));
         } catch (Exception ex) {
             log.debug("parse failed for slno={}: {}", u.getSlno(), ex.getMessage());
         }
         return AddressParseResult.fromMandalResult(MandalDetectionResult.notFound());
     }
 
+    private static boolean hasAddress(UnitAddressRow u) {
+        return u.getUnitAddress() != null && !"null".equalsIgnoreCase(u.getUnitAddress());
+    }
+
     private void createHeader(Sheet sheet) {
         Row header = sheet.createRow(0);
         header.createCell(0).setCellValue("SL NO");
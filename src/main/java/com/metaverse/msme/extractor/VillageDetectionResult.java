@@ -32,6 +32,15 @@ public class VillageDetectionResult {
         );
     }
 
+    /** {@code village}, picked among the {@code villages} the address matched by the unit's location. */
+    public static VillageDetectionResult nearest(String village, Set<String> villages) {
+        return new VillageDetectionResult(
+                VillageDetectionStatus.NEAREST_VILLAGE,
+                village,
+                villages
+        );
+    }
+
     public static VillageDetectionResult notFound() {
         return new VillageDetectionResult(
                 VillageDetectionStatus.VILLAGE_NOT_FOUND,
@@ -3,6 +3,8 @@ package com.metaverse.msme.extractor;
 public enum VillageDetectionStatus {
     SINGLE_VILLAGE,
     MULTIPLE_VILLAGES,
+    // one of MULTIPLE_VILLAGES, picked by the unit's coordinates
+    NEAREST_VILLAGE,
     VILLAGE_NOT_FOUND,
     ERROR
 }
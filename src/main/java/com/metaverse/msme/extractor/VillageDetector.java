@@ -1,10 +1,11 @@
 package com.metaverse.msme.extractor;
 
 import com.metaverse.msme.address.AddressNormalizer;
-import com.metaverse.msme.model.DistrictHierarchyEntity;
-import com.metaverse.msme.repository.DistrictHierarchyRepository;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerDistrict;
+import com.metaverse.msme.gazetteer.GazetteerMandal;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import com.metaverse.msme.gazetteer.GazetteerVillage;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -12,16 +13,32 @@ import java.util.*;
 @Component
 public class VillageDetector {
 
+    private static final byte NO_MATCH = 0;
+    private static final byte EXACT_MATCH = 1;
+    private static final byte FUZZY_MATCH = 2;
+
     private final AddressNormalizer normalizer;
-    private final DistrictHierarchyRepository repository;
+    private final GazetteerProvider gazetteerProvider;
 
     public VillageDetector(AddressNormalizer normalizer,
-                           DistrictHierarchyRepository repository) {
+                           GazetteerProvider gazetteerProvider) {
         this.normalizer = normalizer;
-        this.repository = repository;
+        this.gazetteerProvider = gazetteerProvider;
+    }
+
+    public VillageDetectionResult detectVillage(
+            String district,
+            String mandal,
+            String rawAddress) {
+        return detectVillage(gazetteerProvider.get(), district, mandal, rawAddress);
     }
 
+    /**
+     * Same as {@link #detectVillage(String, String, String)} but against a
+     * snapshot the caller already holds.
+     */
     public VillageDetectionResult detectVillage(
+            Gazetteer gazetteer,
             String district,
             String mandal,
             String rawAddress) {
@@ -31,107 +48,99 @@ public class VillageDetector {
             return VillageDetectionResult.notFound();
         }
 
-        List<String> tokens = normalizer.meaningfulTokenSet(rawAddress);
-        if (tokens.isEmpty()) {
+        return detectVillage(gazetteer, district, mandal, normalizer.meaningfulTokenSet(rawAddress));
+    }
+
+    /**
+     * Same as {@link #detectVillage(Gazetteer, String, String, String)} for an
+     * address already split with {@code meaningfulTokenSet}.
+     */
+    public VillageDetectionResult detectVillage(
+            Gazetteer gazetteer,
+            String district,
+            String mandal,
+            List<String> tokens) {
+
+        if (district == null || mandal == null || tokens == null || tokens.isEmpty()) {
             return VillageDetectionResult.notFound();
         }
 
-        Optional<DistrictHierarchyEntity> opt =
-                repository.findByDistrictNameIgnoreCase(district);
+        GazetteerDistrict hierarchy = gazetteer.district(district);
 
-        if (opt.isEmpty()) {
+        if (hierarchy == null) {
             return VillageDetectionResult.notFound();
         }
 
-        JSONObject root = new JSONObject(opt.get().getHierarchyJson());
-        JSONArray mandalsArr = root.getJSONArray("mandals");
-
         // -------------------- FIND MANDAL --------------------
-        JSONObject mandalObj = null;
         String mandalNorm = normalizer.normalize(mandal);   // exact normalize
-        String mandalPhonetic = phoneticNormalize(mandalNorm);
-
-        for (int i = 0; i < mandalsArr.length(); i++) {
-            JSONObject m = mandalsArr.getJSONObject(i);
-            if (normalizer.normalize(m.getString("mandalName"))
-                    .equals(mandalNorm)) {
-                mandalObj = m;
-                break;
-            }
-        }
+        GazetteerMandal mandalObj = hierarchy.findMandal(mandalNorm);
 
         if (mandalObj == null) {
             return VillageDetectionResult.notFound();
         }
 
-        JSONArray villagesArr = mandalObj.getJSONArray("villages");
-
         // -------------------- MATCH COLLECTION --------------------
         Set<String> exactMatches = new LinkedHashSet<>();
         Set<String> fuzzyMatches = new LinkedHashSet<>();
-        String hqVillage = null;
 
         // STOP WORDS
         Set<String> STOP_WORDS = Set.of(
-                phoneticNormalize(normalizer.normalize(district)),
+                normalizer.phoneticNormalize(normalizer.normalize(district)),
                 "city", "district", "dist", "block"
         );
 
-        // -------------------- VILLAGE LOOP --------------------
-        for (int i = 0; i < villagesArr.length(); i++) {
-
-            JSONObject villageObj = villagesArr.getJSONObject(i);
-            String villageName = villageObj.getString("villageName");
+        // Phonetic form of every token that may take part in matching,
+        // computed once per address instead of once per village
+        List<String> candidateTokens = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            String tokenPhonetic = normalizer.phoneticNormalize(normalizer.normalize(token));
 
-            String villageNorm = normalizer.normalize(villageName);
-            String villagePhonetic = phoneticNormalize(villageNorm);
-
-            // alias support
-            String aliasNorm = null;
-            String aliasPhonetic = null;
-
-            if (villageObj.has("aliasName") && !villageObj.isNull("aliasName")) {
-                aliasNorm = normalizer.normalize(villageObj.getString("aliasName"));
-                aliasPhonetic = phoneticNormalize(aliasNorm);
-            }
-
-            // ------------------ FIXED HQ CHECK ------------------
-            // HQ ONLY if villageName == mandalName OR alias == mandalName (exact normalized)
-            boolean isHqVillage = villageNorm.equals(mandalNorm) || (aliasNorm != null && aliasNorm.equals(mandalNorm));
-
-            if (isHqVillage) {
-                hqVillage = villageName;
-                continue;  // HQ fallback only
-            }
+            if (STOP_WORDS.contains(tokenPhonetic)) continue;
+            if (tokenPhonetic.length() <= 4) continue;
 
+            candidateTokens.add(tokenPhonetic);
+        }
 
-            // ------------------ TOKEN MATCHING ------------------
-            for (String token : tokens) {
+        // -------------------- FUZZY CANDIDATES --------------------
+        // A village is decided by the first token that is within fuzzy
+        // distance of its name or alias: EXACT if that token equals it,
+        // FUZZY otherwise. Only the index hits are ever compared.
+        List<GazetteerVillage> villages = mandalObj.getVillages();
+        byte[] match = new byte[villages.size()];
+
+        for (String tokenPhonetic : candidateTokens) {
+            mandalObj.getVillageIndex().forEachMatch(tokenPhonetic, i -> {
+                if (match[i] != NO_MATCH) return;
+                GazetteerVillage v = villages.get(i);
+                boolean exact = tokenPhonetic.equals(v.getPhonetic())
+                        || tokenPhonetic.equals(v.getAliasPhonetic());
+                match[i] = exact ? EXACT_MATCH : FUZZY_MATCH;
+            });
+        }
 
-                String tokenNorm = normalizer.normalize(token);
-                String tokenPhonetic = phoneticNormalize(tokenNorm);
+        // -------------------- MULTI-WORD NAMES --------------------
+        // one pass over the token stream finds every 1-3 word village name
+        boolean[] phraseMatch = new boolean[villages.size()];
+        mandalObj.getVillagePhrases().scan(tokens, (start, end, i) -> phraseMatch[i] = true);
 
-                if (STOP_WORDS.contains(tokenPhonetic)) continue;
-                if (tokenPhonetic.length() <= 4) continue;
+        // -------------------- VILLAGE LOOP --------------------
+        for (int i = 0; i < villages.size() && !candidateTokens.isEmpty(); i++) {
 
-                // EXACT match (name or alias)
-                if (tokenPhonetic.equals(villagePhonetic) || (aliasPhonetic != null && tokenPhonetic.equals(aliasPhonetic))) {
-                    exactMatches.add(villageName);
-                    break;
-                }
+            // HQ fallback only
+            if (mandalObj.isHqVillage(i)) continue;
 
-                if (matchUpToThreeWords(tokens, villagePhonetic, aliasPhonetic)) {
-                    exactMatches.add(villageName);
-                }
+            GazetteerVillage villageObj = villages.get(i);
 
-                // FUZZY match (name or alias)
-                if (similarity(tokenPhonetic, villagePhonetic) >= 0.90 || (aliasPhonetic != null && similarity(tokenPhonetic, aliasPhonetic) >= 0.90)) {
-                    fuzzyMatches.add(villageName);
-                    break;
-                }
+            if (match[i] == EXACT_MATCH || phraseMatch[i]) {
+                exactMatches.add(villageObj.getName());
+            } else if (match[i] == FUZZY_MATCH) {
+                fuzzyMatches.add(villageObj.getName());
             }
         }
 
+        GazetteerVillage hq = mandalObj.getHqVillage();
+        String hqVillage = hq == null ? null : hq.getName();
+
         // -------------------- DECISION BLOCK --------------------
         if (exactMatches.size() == 1) return VillageDetectionResult.single(exactMatches.iterator().next());
 
@@ -146,67 +155,4 @@ public class VillageDetector {
 
         return VillageDetectionResult.notFound();
     }
-
-
-    private double similarity(String s1, String s2) {
-        int dist = levenshtein(s1, s2);
-        int max = Math.max(s1.length(), s2.length());
-        return max == 0 ? 1.0 : 1.0 - ((double) dist / max);
-    }
-
-    private int levenshtein(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) dp[i][0] = i;
-        for (int j = 0; j <= s2.length(); j++) dp[0][j] = j;
-
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
-                );
-            }
-        }
-        return dp[s1.length()][s2.length()];
-    }
-
-    private String phoneticNormalize(String s) {
-        return s.replace("oo", "u")
-                .replace("oor", "ur");
-    }
-
-    private boolean matchUpToThreeWords(List<String> tokensPhonetic, String villagePhonetic, String aliasPhonetic) {
-        int size = tokensPhonetic.size();
-
-        String village = villagePhonetic.toLowerCase();
-        String alias = aliasPhonetic != null ? aliasPhonetic.toLowerCase() : null;
-
-        for (int i = 0; i < size; i++) {
-
-            // -------- 1 WORD --------
-            String one = tokensPhonetic.get(i).toLowerCase();
-            if (one.equals(village) || (alias != null && one.equals(alias))) {
-                return true;
-            }
-
-            // -------- 2 WORDS --------
-            if (i + 1 < size) {
-                String two = one + " " + tokensPhonetic.get(i + 1).toLowerCase();
-                if (two.equals(village) || (alias != null && two.equals(alias))) {
-                    return true;
-                }
-            }
-
-            // -------- 3 WORDS --------
-            if (i + 2 < size) {
-                String three = one + " " + tokensPhonetic.get(i + 1).toLowerCase() + " " + tokensPhonetic.get(i + 2).toLowerCase();
-                if (three.equals(village) || (alias != null && three.equals(alias))) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
 }
-
@@ -0,0 +1,168 @@
+package com.metaverse.msme.gazetteer;
+
+import com.metaverse.msme.address.AddressNormalizer;
+import com.metaverse.msme.matching.PhraseMatcher;
+import com.metaverse.msme.model.DistrictHierarchyEntity;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable, compiled view of every {@code district_hierarchy} document.
+ * <p>
+ * The jsonb documents are parsed and every name is normalized exactly once,
+ * when the gazetteer is compiled, so detectors only do map lookups and string
+ * comparisons per address.
+ * <p>
+ * Each instance is a versioned snapshot: it is never modified after
+ * {@link #compile}, a reload builds a new one and swaps it in whole.
+ */
+public class Gazetteer {
+
+    private final String version;
+    private final Instant loadedAt;
+    private final Map<String, GazetteerDistrict> districts;
+
+    // district routing: normalized name lookup and multi-word name matcher
+    private final Map<String, GazetteerDistrict> districtsByNorm = new HashMap<>();
+    private final PhraseMatcher<GazetteerDistrict> districtPhrases = new PhraseMatcher<>();
+
+    private Gazetteer(String version, Map<String, GazetteerDistrict> districts) {
+        this.version = version;
+        this.loadedAt = Instant.now();
+        this.districts = Collections.unmodifiableMap(districts);
+
+        for (GazetteerDistrict d : districts.values()) {
+            if (d.getNorm().isEmpty()) continue;
+            districtsByNorm.putIfAbsent(d.getNorm(), d);
+            districtPhrases.add(d.getNorm(), d);
+        }
+        districtPhrases.build();
+    }
+
+    /**
+     * @param version change marker of the {@code district_hierarchy} rows the
+     *                snapshot was built from
+     */
+    public static Gazetteer compile(String version,
+                                    List<DistrictHierarchyEntity> docs,
+                                    AddressNormalizer normalizer) {
+        Map<String, GazetteerDistrict> districts = new LinkedHashMap<>();
+        for (DistrictHierarchyEntity d : docs) {
+            GazetteerDistrict district = compileDistrict(d, normalizer);
+            districts.put(key(district.getName()), district);
+        }
+        return new Gazetteer(version, districts);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /** Case-insensitive district lookup; {@code null} when unknown. */
+    public GazetteerDistrict district(String districtName) {
+        if (districtName == null) return null;
+        return districts.get(key(districtName));
+    }
+
+    /** Lookup by name already passed through {@code AddressNormalizer.normalize}. */
+    public GazetteerDistrict findDistrictByNorm(String districtNorm) {
+        return districtsByNorm.get(districtNorm);
+    }
+
+    /** Matches district names, as normalized words, inside a token stream. */
+    public PhraseMatcher<GazetteerDistrict> getDistrictPhrases() {
+        return districtPhrases;
+    }
+
+    public Collection<GazetteerDistrict> getDistricts() {
+        return districts.values();
+    }
+
+    private static GazetteerDistrict compileDistrict(DistrictHierarchyEntity d,
+                                                     AddressNormalizer normalizer) {
+        JSONObject root = new JSONObject(d.getHierarchyJson());
+        JSONArray mandalsArr = root.getJSONArray("mandals");
+
+        List<GazetteerMandal> mandals = new ArrayList<>(mandalsArr.length());
+        for (int i = 0; i < mandalsArr.length(); i++) {
+            mandals.add(compileMandal(mandalsArr.getJSONObject(i), normalizer));
+        }
+
+        String norm = normalizer.normalize(d.getDistrictName());
+        return new GazetteerDistrict(
+                d.getDistrictName(),
+                norm,
+                normalizer.phoneticNormalize(norm),
+                mandals
+        );
+    }
+
+    private static GazetteerMandal compileMandal(JSONObject mandalObj,
+                                                 AddressNormalizer normalizer) {
+        String name = mandalObj.getString("mandalName");
+        String alias = optString(mandalObj, "aliasName");
+
+        String norm = normalizer.normalize(name);
+        String phonetic = normalizer.phoneticNormalize(norm);
+        String aliasPhonetic = alias == null
+                ? null
+                : normalizer.phoneticNormalize(normalizer.normalize(alias));
+
+        // split words like "adilabad rural"
+        Set<String> words = new HashSet<>(Arrays.asList(phonetic.split("\\s+")));
+
+        JSONArray villagesArr = mandalObj.optJSONArray("villages");
+        List<GazetteerVillage> villages = new ArrayList<>();
+        if (villagesArr != null) {
+            for (int i = 0; i < villagesArr.length(); i++) {
+                villages.add(compileVillage(villagesArr.getJSONObject(i), normalizer));
+            }
+        }
+
+        return new GazetteerMandal(
+                mandalObj.has("mandalId") ? mandalObj.optLong("mandalId") : null,
+                name,
+                alias,
+                norm,
+                phonetic,
+                aliasPhonetic,
+                words,
+                villages
+        );
+    }
+
+    private static GazetteerVillage compileVillage(JSONObject villageObj,
+                                                   AddressNormalizer normalizer) {
+        String name = villageObj.getString("villageName");
+        String alias = optString(villageObj, "aliasName");
+
+        String norm = normalizer.normalize(name);
+        String aliasNorm = alias == null ? null : normalizer.normalize(alias);
+
+        return new GazetteerVillage(
+                villageObj.has("villageId") ? villageObj.optInt("villageId") : null,
+                name,
+                alias,
+                norm,
+                normalizer.phoneticNormalize(norm),
+                aliasNorm,
+                aliasNorm == null ? null : normalizer.phoneticNormalize(aliasNorm)
+        );
+    }
+
+    private static String optString(JSONObject obj, String field) {
+        if (!obj.has(field) || obj.isNull(field)) return null;
+        return obj.getString(field);
+    }
+
+    private static String key(String districtName) {
+        return districtName.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,79 @@
+package com.metaverse.msme.gazetteer;
+
+import com.metaverse.msme.matching.FuzzyNameIndex;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One district of a compiled gazetteer: its mandals in document order plus
+ * a lookup by normalized mandal name.
+ */
+public class GazetteerDistrict {
+
+    private final String name;
+    private final String norm;
+    private final String phonetic;
+
+    private final List<GazetteerMandal> mandals;
+    private final Map<String, GazetteerMandal> mandalsByNorm;
+    private final FuzzyNameIndex<Integer> mandalIndex = new FuzzyNameIndex<>();
+
+    public GazetteerDistrict(String name,
+                             String norm,
+                             String phonetic,
+                             List<GazetteerMandal> mandals) {
+        this.name = name;
+        this.norm = norm;
+        this.phonetic = phonetic;
+        this.mandals = List.copyOf(mandals);
+
+        // first mandal wins on duplicate names, same as the old linear scan
+        Map<String, GazetteerMandal> byNorm = new LinkedHashMap<>();
+        for (GazetteerMandal m : mandals) {
+            byNorm.putIfAbsent(m.getNorm(), m);
+        }
+        this.mandalsByNorm = Collections.unmodifiableMap(byNorm);
+
+        for (int i = 0; i < mandals.size(); i++) {
+            GazetteerMandal m = mandals.get(i);
+            for (String word : m.getWords()) {
+                mandalIndex.add(word, i);
+            }
+            if (m.getAliasPhonetic() != null) {
+                mandalIndex.add(m.getAliasPhonetic(), i);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNorm() {
+        return norm;
+    }
+
+    public String getPhonetic() {
+        return phonetic;
+    }
+
+    public List<GazetteerMandal> getMandals() {
+        return mandals;
+    }
+
+    /** Fuzzy index over mandal name words and aliases, valued by position in {@link #getMandals()}. */
+    public FuzzyNameIndex<Integer> getMandalIndex() {
+        return mandalIndex;
+    }
+
+    /**
+     * @param mandalNorm mandal name already passed through
+     *                   {@code AddressNormalizer.normalize}
+     */
+    public GazetteerMandal findMandal(String mandalNorm) {
+        return mandalsByNorm.get(mandalNorm);
+    }
+}
@@ -0,0 +1,133 @@
+package com.metaverse.msme.gazetteer;
+
+import com.metaverse.msme.matching.FuzzyNameIndex;
+import com.metaverse.msme.matching.PhraseMatcher;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One mandal of a compiled gazetteer. Besides the pre-normalized name and
+ * alias it keeps the phonetic word split ("adilabad rural" → {adilabad, rural})
+ * used for exact multi-word matching, and its villages in document order.
+ * <p>
+ * The HQ village (the one named after the mandal) is resolved up front and
+ * left out of the fuzzy village index and the phrase matcher, since
+ * detection only uses it as a fallback.
+ */
+public class GazetteerMandal {
+
+    private static final int MAX_PHRASE_WORDS = 3;
+
+    private final Long mandalId;
+    private final String name;
+    private final String aliasName;
+
+    private final String norm;
+    private final String phonetic;
+    private final String aliasPhonetic;
+    private final Set<String> words;
+
+    private final List<GazetteerVillage> villages;
+    private final GazetteerVillage hqVillage;
+    private final boolean[] hqVillages;
+    private final FuzzyNameIndex<Integer> villageIndex = new FuzzyNameIndex<>();
+    private final PhraseMatcher<Integer> villagePhrases = new PhraseMatcher<>();
+
+    public GazetteerMandal(Long mandalId,
+                           String name,
+                           String aliasName,
+                           String norm,
+                           String phonetic,
+                           String aliasPhonetic,
+                           Set<String> words,
+                           List<GazetteerVillage> villages) {
+        this.mandalId = mandalId;
+        this.name = name;
+        this.aliasName = aliasName;
+        this.norm = norm;
+        this.phonetic = phonetic;
+        this.aliasPhonetic = aliasPhonetic;
+        this.words = Set.copyOf(words);
+        this.villages = List.copyOf(villages);
+
+        // HQ ONLY if villageName == mandalName OR alias == mandalName (exact normalized)
+        GazetteerVillage hq = null;
+        this.hqVillages = new boolean[villages.size()];
+        for (int i = 0; i < villages.size(); i++) {
+            GazetteerVillage v = villages.get(i);
+            if (v.getNorm().equals(norm) || norm.equals(v.getAliasNorm())) {
+                hq = v;
+                hqVillages[i] = true;
+                continue;
+            }
+            villageIndex.add(v.getPhonetic(), i);
+            addPhrase(v.getPhonetic(), i);
+            if (v.getAliasPhonetic() != null) {
+                villageIndex.add(v.getAliasPhonetic(), i);
+                addPhrase(v.getAliasPhonetic(), i);
+            }
+        }
+        this.hqVillage = hq;
+        villagePhrases.build();
+    }
+
+    // address tokens are matched against names of one to three words
+    private void addPhrase(String phonetic, int villagePosition) {
+        if (phonetic.isBlank()) return;
+        if (phonetic.split(" ").length > MAX_PHRASE_WORDS) return;
+        villagePhrases.add(phonetic, villagePosition);
+    }
+
+    public Long getMandalId() {
+        return mandalId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAliasName() {
+        return aliasName;
+    }
+
+    public String getNorm() {
+        return norm;
+    }
+
+    public String getPhonetic() {
+        return phonetic;
+    }
+
+    /** Phonetic alias, or {@code null} when the mandal has none. */
+    public String getAliasPhonetic() {
+        return aliasPhonetic;
+    }
+
+    public Set<String> getWords() {
+        return words;
+    }
+
+    public List<GazetteerVillage> getVillages() {
+        return villages;
+    }
+
+    /** Last village named after the mandal, or {@code null}. */
+    public GazetteerVillage getHqVillage() {
+        return hqVillage;
+    }
+
+    public boolean isHqVillage(int villageIndex) {
+        return hqVillages[villageIndex];
+    }
+
+    /** Fuzzy index over non-HQ village names and aliases, valued by position in {@link #getVillages()}. */
+    public FuzzyNameIndex<Integer> getVillageIndex() {
+        return villageIndex;
+    }
+
+    /** Phrase matcher over non-HQ village names and aliases of up to three words, valued by position. */
+    public PhraseMatcher<Integer> getVillagePhrases() {
+        return villagePhrases;
+    }
+}
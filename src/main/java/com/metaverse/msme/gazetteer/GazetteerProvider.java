@@ -0,0 +1,88 @@
+package com.metaverse.msme.gazetteer;
+
+import com.metaverse.msme.address.AddressNormalizer;
+import com.metaverse.msme.repository.DistrictHierarchyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Holds the current {@link Gazetteer} snapshot.
+ * <p>
+ * The snapshot lives behind a single volatile reference: a reload compiles a
+ * complete new snapshot off to the side and only then swaps it in, so a parse
+ * that already grabbed a snapshot keeps using it and never sees a half-built
+ * index. Reloads are triggered from the admin endpoint or by polling the
+ * {@code district_hierarchy} change marker. Each swap publishes a
+ * {@link GazetteerReloadedEvent}.
+ */
+@Component
+public class GazetteerProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerProvider.class);
+
+    private final DistrictHierarchyRepository repository;
+    private final AddressNormalizer normalizer;
+    private final ApplicationEventPublisher events;
+
+    private volatile Gazetteer gazetteer;
+
+    public GazetteerProvider(DistrictHierarchyRepository repository,
+                             AddressNormalizer normalizer,
+                             ApplicationEventPublisher events) {
+        this.repository = repository;
+        this.normalizer = normalizer;
+        this.events = events;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    public Gazetteer get() {
+        return gazetteer;
+    }
+
+    /**
+     * Rebuilds the snapshot from {@code district_hierarchy} and swaps it in.
+     * If compiling fails the current snapshot stays in place.
+     */
+    public synchronized Gazetteer reload() {
+        // read the marker first: if rows change while we load, the next poll
+        // sees a newer marker and reloads again
+        String version = repository.findChangeMarker();
+        Gazetteer next = Gazetteer.compile(version, repository.findAll(), normalizer);
+        Gazetteer previous = gazetteer;
+        gazetteer = next;
+
+        log.info("Gazetteer snapshot {} loaded: {} districts (previous {})",
+                next.getVersion(),
+                next.getDistricts().size(),
+                previous == null ? "none" : previous.getVersion());
+
+        events.publishEvent(new GazetteerReloadedEvent(previous, next));
+        return next;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${gazetteer.reload.poll-interval-ms:60000}",
+            initialDelayString = "${gazetteer.reload.poll-interval-ms:60000}")
+    public void pollForChanges() {
+        try {
+            Gazetteer current = gazetteer;
+            String marker = repository.findChangeMarker();
+            if (current == null || !Objects.equals(marker, current.getVersion())) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.error("Gazetteer change poll failed, keeping snapshot {}",
+                    gazetteer == null ? "none" : gazetteer.getVersion(), e);
+        }
+    }
+}
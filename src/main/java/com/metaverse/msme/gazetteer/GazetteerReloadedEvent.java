@@ -0,0 +1,25 @@
+package com.metaverse.msme.gazetteer;
+
+/**
+ * Published after a new {@link Gazetteer} snapshot has been swapped in, so
+ * anything derived from the previous snapshot can be dropped or rebuilt.
+ */
+public class GazetteerReloadedEvent {
+
+    private final Gazetteer previous;
+    private final Gazetteer current;
+
+    public GazetteerReloadedEvent(Gazetteer previous, Gazetteer current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /** Snapshot that was replaced; {@code null} on the initial load. */
+    public Gazetteer getPrevious() {
+        return previous;
+    }
+
+    public Gazetteer getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,63 @@
+package com.metaverse.msme.gazetteer;
+
+/**
+ * One village of a compiled gazetteer, with its name and alias
+ * pre-normalized the same way detectors normalize address tokens.
+ */
+public class GazetteerVillage {
+
+    private final Integer villageId;
+    private final String name;
+    private final String aliasName;
+
+    private final String norm;
+    private final String phonetic;
+    private final String aliasNorm;
+    private final String aliasPhonetic;
+
+    public GazetteerVillage(Integer villageId,
+                            String name,
+                            String aliasName,
+                            String norm,
+                            String phonetic,
+                            String aliasNorm,
+                            String aliasPhonetic) {
+        this.villageId = villageId;
+        this.name = name;
+        this.aliasName = aliasName;
+        this.norm = norm;
+        this.phonetic = phonetic;
+        this.aliasNorm = aliasNorm;
+        this.aliasPhonetic = aliasPhonetic;
+    }
+
+    public Integer getVillageId() {
+        return villageId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAliasName() {
+        return aliasName;
+    }
+
+    public String getNorm() {
+        return norm;
+    }
+
+    public String getPhonetic() {
+        return phonetic;
+    }
+
+    /** Normalized alias, or {@code null} when the village has none. */
+    public String getAliasNorm() {
+        return aliasNorm;
+    }
+
+    /** Phonetic alias, or {@code null} when the village has none. */
+    public String getAliasPhonetic() {
+        return aliasPhonetic;
+    }
+}
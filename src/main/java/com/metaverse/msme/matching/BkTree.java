@@ -0,0 +1,112 @@
+package com.metaverse.msme.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Burkhard-Keller tree over edit distance.
+ * <p>
+ * Every child hangs off its parent by its distance to the parent key, so by
+ * the triangle inequality a search for keys within {@code radius} of a query
+ * only has to descend into children whose edge is in
+ * {@code [d - radius, d + radius]}. Equal keys share one node.
+ * <p>
+ * Distances come from the bounded {@link EditDistance} kernel: a node further
+ * than {@code radius + longest child edge} from the query can neither match
+ * nor lead to a match, so its exact distance is never computed.
+ * <p>
+ * Built once and then only read; not safe for concurrent {@link #add}.
+ */
+public class BkTree<T> {
+
+    @FunctionalInterface
+    public interface Hit<T> {
+        void accept(String key, int distance, T value);
+    }
+
+    private static final class Node<T> {
+        final String key;
+        final List<T> values = new ArrayList<>(1);
+        Node<T>[] children;
+
+        Node(String key) {
+            this.key = key;
+        }
+    }
+
+    private Node<T> root;
+
+    public void add(String key, T value) {
+        if (root == null) {
+            root = new Node<>(key);
+            root.values.add(value);
+            return;
+        }
+
+        Node<T> node = root;
+        while (true) {
+            int d = EditDistance.distance(key, node.key);
+            if (d == 0) {
+                node.values.add(value);
+                return;
+            }
+            Node<T> child = child(node, d);
+            if (child == null) {
+                child = new Node<>(key);
+                child.values.add(value);
+                setChild(node, d, child);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Reports every value whose key is within {@code radius} edits of
+     * {@code query}, together with the exact distance.
+     */
+    public void search(String query, int radius, Hit<T> hit) {
+        if (root == null) return;
+
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            int maxEdge = node.children == null ? 0 : node.children.length - 1;
+            int d = EditDistance.bounded(query, node.key, radius + maxEdge);
+
+            if (d <= radius) {
+                for (T v : node.values) {
+                    hit.accept(node.key, d, v);
+                }
+            }
+
+            if (node.children == null) continue;
+            int from = Math.max(1, d - radius);
+            int to = Math.min(node.children.length - 1, d + radius);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+    }
+
+    private Node<T> child(Node<T> node, int d) {
+        return node.children != null && d < node.children.length ? node.children[d] : null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void setChild(Node<T> node, int d, Node<T> child) {
+        if (node.children == null) {
+            node.children = new Node[Math.max(d + 1, 8)];
+        } else if (d >= node.children.length) {
+            node.children = Arrays.copyOf(node.children, Math.max(d + 1, node.children.length * 2));
+        }
+        node.children[d] = child;
+    }
+}
@@ -0,0 +1,145 @@
+package com.metaverse.msme.matching;
+
+/**
+ * Allocation-free, threshold-bounded Levenshtein distance.
+ * <p>
+ * Strings whose shorter side fits in 64 chars (every gazetteer name and
+ * address token) go through Myers' bit-parallel algorithm in Hyyrö's
+ * formulation: one pass over the longer string, a handful of word
+ * operations per character. Anything longer, or with a non-ASCII char in
+ * the shorter string, falls back to a two-row DP on thread-local buffers.
+ * <p>
+ * {@link #bounded} rejects on the length difference before any work and
+ * stops as soon as the distance can no longer come back under the bound.
+ */
+public final class EditDistance {
+
+    private static final int WORD = 64;
+    private static final int ALPHABET = 128;
+
+    // per-thread match-vector table, indexed by char; always left all-zero
+    private static final ThreadLocal<long[]> PEQ =
+            ThreadLocal.withInitial(() -> new long[ALPHABET]);
+
+    private static final ThreadLocal<int[][]> ROWS =
+            ThreadLocal.withInitial(() -> new int[2][WORD + 1]);
+
+    private EditDistance() {
+    }
+
+    /** Exact edit distance. */
+    public static int distance(String a, String b) {
+        return bounded(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * Edit distance between {@code a} and {@code b} if it is at most
+     * {@code k}; otherwise some value greater than {@code k}.
+     */
+    public static int bounded(String a, String b, int k) {
+        String p = a.length() <= b.length() ? a : b;   // pattern: the shorter
+        String t = p == a ? b : a;                     // text: the longer
+
+        int m = p.length();
+        int n = t.length();
+
+        // length pre-filter: at least n - m insertions are needed
+        if (n - m > k) return k + 1;
+        if (m == 0) return n;
+
+        if (m <= WORD && isAscii(p)) {
+            return myers(p, t, k);
+        }
+        return dp(p, t, k);
+    }
+
+    private static int myers(String p, String t, int k) {
+        int m = p.length();
+        int n = t.length();
+        long[] peq = PEQ.get();
+
+        for (int i = 0; i < m; i++) {
+            peq[p.charAt(i)] |= 1L << i;
+        }
+
+        try {
+            long pv = -1L;
+            long mv = 0L;
+            long last = 1L << (m - 1);
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                char c = t.charAt(j);
+                long eq = c < ALPHABET ? peq[c] : 0L;
+
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & last) != 0) {
+                    score++;
+                } else if ((mh & last) != 0) {
+                    score--;
+                }
+
+                // every remaining text char can lower the score by at most one
+                if (score - (n - j - 1) > k) return k + 1;
+
+                // top row is D[0][j] = j, so a +1 shifts in at the bottom
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score;
+        } finally {
+            for (int i = 0; i < m; i++) {
+                peq[p.charAt(i)] = 0L;
+            }
+        }
+    }
+
+    private static int dp(String p, String t, int k) {
+        int m = p.length();
+        int n = t.length();
+
+        int[][] rows = ROWS.get();
+        if (rows[0].length < m + 1) {
+            rows = new int[][]{new int[m + 1], new int[m + 1]};
+            ROWS.set(rows);
+        }
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+
+        for (int i = 0; i <= m; i++) prev[i] = i;
+
+        for (int j = 1; j <= n; j++) {
+            cur[0] = j;
+            int rowMin = cur[0];
+            char c = t.charAt(j - 1);
+            for (int i = 1; i <= m; i++) {
+                int cost = p.charAt(i - 1) == c ? 0 : 1;
+                cur[i] = Math.min(
+                        Math.min(prev[i] + 1, cur[i - 1] + 1),
+                        prev[i - 1] + cost
+                );
+                rowMin = Math.min(rowMin, cur[i]);
+            }
+            // no path through this column can end under the bound
+            if (rowMin > k) return k + 1;
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[m];
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= ALPHABET) return false;
+        }
+        return true;
+    }
+}
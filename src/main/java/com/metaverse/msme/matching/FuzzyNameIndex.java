@@ -0,0 +1,48 @@
+package com.metaverse.msme.matching;
+
+import java.util.function.Consumer;
+
+/**
+ * Candidate index for the detectors' fuzzy phase: returns only the names that
+ * are {@link NameSimilarity#isSimilar similar} to a token.
+ * <p>
+ * Because the allowed distance depends on the longer of the two strings, the
+ * BK-tree is searched with the widest radius any key length could allow and
+ * every hit is then checked against the exact threshold.
+ */
+public class FuzzyNameIndex<T> {
+
+    private final BkTree<T> tree = new BkTree<>();
+    private int maxKeyLength;
+
+    public void add(String key, T value) {
+        tree.add(key, value);
+        maxKeyLength = Math.max(maxKeyLength, key.length());
+    }
+
+    /**
+     * Calls {@code consumer} once per (key, value) pair whose key is similar
+     * enough to {@code token}. A value added under several keys may be
+     * reported more than once.
+     */
+    public void forEachMatch(String token, Consumer<T> consumer) {
+        int radius = searchRadius(token.length());
+        tree.search(token, radius, (key, distance, value) -> {
+            if (NameSimilarity.withinThreshold(distance, Math.max(token.length(), key.length()))) {
+                consumer.accept(value);
+            }
+        });
+    }
+
+    /** Largest distance that can still pass the threshold for any stored key. */
+    private int searchRadius(int tokenLength) {
+        int radius = NameSimilarity.maxDistance(tokenLength);
+        for (int len = tokenLength + 1; len <= maxKeyLength; len++) {
+            int allowed = NameSimilarity.maxDistance(len);
+            // a key this much longer is already more than `allowed` edits away
+            if (len - tokenLength > allowed) break;
+            radius = Math.max(radius, allowed);
+        }
+        return radius;
+    }
+}
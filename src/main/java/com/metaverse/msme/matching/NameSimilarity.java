@@ -0,0 +1,51 @@
+package com.metaverse.msme.matching;
+
+/**
+ * The detectors' notion of "similar names": {@code 1 - editDistance / max(length)}
+ * of at least {@link #THRESHOLD}.
+ * <p>
+ * The threshold is turned into a maximum edit distance per length once, so a
+ * comparison is a bounded {@link EditDistance} call that gives up as soon as
+ * the cut-off can't be reached instead of filling a full DP table.
+ */
+public final class NameSimilarity {
+
+    public static final double THRESHOLD = 0.90;
+
+    private static final int[] MAX_DISTANCE = new int[257];
+
+    static {
+        for (int len = 0; len < MAX_DISTANCE.length; len++) {
+            MAX_DISTANCE[len] = computeMaxDistance(len);
+        }
+    }
+
+    private NameSimilarity() {
+    }
+
+    /** Whether {@code a} and {@code b} are at least {@link #THRESHOLD} similar. */
+    public static boolean isSimilar(String a, String b) {
+        int allowed = maxDistance(Math.max(a.length(), b.length()));
+        return EditDistance.bounded(a, b, allowed) <= allowed;
+    }
+
+    /** Largest edit distance that still passes when the longer string has {@code maxLength} chars. */
+    public static int maxDistance(int maxLength) {
+        return maxLength < MAX_DISTANCE.length
+                ? MAX_DISTANCE[maxLength]
+                : computeMaxDistance(maxLength);
+    }
+
+    public static boolean withinThreshold(int distance, int maxLength) {
+        double similarity = maxLength == 0 ? 1.0 : 1.0 - ((double) distance / maxLength);
+        return similarity >= THRESHOLD;
+    }
+
+    private static int computeMaxDistance(int maxLength) {
+        int d = 0;
+        while (d < maxLength && withinThreshold(d + 1, maxLength)) {
+            d++;
+        }
+        return d;
+    }
+}
@@ -0,0 +1,102 @@
+package com.metaverse.msme.matching;
+
+import java.util.*;
+
+/**
+ * Word-level Aho-Corasick automaton.
+ * <p>
+ * Phrases are sequences of whole words; {@link #scan} walks a token stream
+ * once and reports every phrase that occurs as consecutive tokens, with its
+ * token offsets, without building any window strings.
+ * <p>
+ * Add every phrase, call {@link #build()}, then only scan; a built matcher
+ * is immutable and safe to share between threads.
+ */
+public class PhraseMatcher<T> {
+
+    @FunctionalInterface
+    public interface Hit<T> {
+        /**
+         * @param start index of the first matching token
+         * @param end   index one past the last matching token
+         */
+        void accept(int start, int end, T value);
+    }
+
+    private static final class Output<T> {
+        final T value;
+        final int length;
+
+        Output(T value, int length) {
+            this.value = value;
+            this.length = length;
+        }
+    }
+
+    private static final class Node<T> {
+        final Map<String, Node<T>> next = new HashMap<>(4);
+        final List<Output<T>> outputs = new ArrayList<>(0);
+        Node<T> fail;
+    }
+
+    private final Node<T> root = new Node<>();
+    private boolean built;
+
+    /** Adds a phrase given as space-separated words. */
+    public void add(String phrase, T value) {
+        if (built) throw new IllegalStateException("matcher already built");
+
+        String[] words = phrase.trim().split(" +");
+        if (words.length == 0 || words[0].isEmpty()) return;
+
+        Node<T> node = root;
+        for (String w : words) {
+            node = node.next.computeIfAbsent(w, k -> new Node<>());
+        }
+        node.outputs.add(new Output<>(value, words.length));
+    }
+
+    /** Computes failure links breadth-first and merges suffix outputs. */
+    public void build() {
+        Deque<Node<T>> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node<T> child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            Node<T> node = queue.poll();
+            for (Map.Entry<String, Node<T>> e : node.next.entrySet()) {
+                Node<T> child = e.getValue();
+                Node<T> f = node.fail;
+                while (f != root && !f.next.containsKey(e.getKey())) {
+                    f = f.fail;
+                }
+                Node<T> target = f.next.get(e.getKey());
+                child.fail = target != null && target != child ? target : root;
+                // shorter phrases ending here are reported from this node too
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+        built = true;
+    }
+
+    public void scan(List<String> tokens, Hit<T> hit) {
+        if (!built) throw new IllegalStateException("matcher not built");
+
+        Node<T> node = root;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            while (node != root && !node.next.containsKey(token)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(token, root);
+
+            for (Output<T> out : node.outputs) {
+                hit.accept(i + 1 - out.length, i + 1, out.value);
+            }
+        }
+    }
+}
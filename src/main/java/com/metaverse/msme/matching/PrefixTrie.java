@@ -0,0 +1,160 @@
+package com.metaverse.msme.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Trie over keys for typeahead: finds every key that starts with the query,
+ * allowing up to {@code maxDistance} edits between the query and the start of
+ * the key.
+ * <p>
+ * The search walks the trie with one Levenshtein row per depth (the distance
+ * between the query and the path so far). A path whose row ends within the
+ * limit has the query as a fuzzy prefix, so every key below it matches; a path
+ * whose row no longer has any entry below the best distance found on the way
+ * down cannot improve on it and is not descended further. Keys are kept
+ * sorted, so every node's subtree is a contiguous slice of them and reporting a
+ * whole subtree is a plain loop.
+ * <p>
+ * Built once with {@link #add} and {@link #build}, then only read.
+ */
+public class PrefixTrie<T> {
+
+    @FunctionalInterface
+    public interface Hit<T> {
+        /** {@code distance}: fewest edits turning the query into a prefix of {@code key}. */
+        void accept(String key, int distance, T value);
+    }
+
+    private static final class Node {
+        char[] labels;
+        Node[] children;
+        // keys [from, to) are this subtree; [from, terminalsEnd) end at this node
+        int from;
+        int to;
+        int terminalsEnd;
+    }
+
+    private List<String> pendingKeys = new ArrayList<>();
+    private List<T> pendingValues = new ArrayList<>();
+
+    private String[] keys;
+    private Object[] values;
+    private Node root;
+    private int maxKeyLength;
+
+    public void add(String key, T value) {
+        if (pendingKeys == null) {
+            throw new IllegalStateException("PrefixTrie is already built");
+        }
+        pendingKeys.add(key);
+        pendingValues.add(value);
+    }
+
+    /** Compiles the added keys; call once, before searching. */
+    public void build() {
+        Integer[] order = new Integer[pendingKeys.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(pendingKeys::get));
+
+        keys = new String[order.length];
+        values = new Object[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = pendingKeys.get(order[i]);
+            values[i] = pendingValues.get(order[i]);
+            maxKeyLength = Math.max(maxKeyLength, keys[i].length());
+        }
+        pendingKeys = null;
+        pendingValues = null;
+
+        root = node(0, 0, keys.length);
+    }
+
+    public int size() {
+        return keys == null ? pendingKeys.size() : keys.length;
+    }
+
+    /**
+     * Reports each (key, value) pair whose key has {@code query} as a prefix
+     * within {@code maxDistance} edits, once, with the smallest such distance.
+     */
+    public void search(String query, int maxDistance, Hit<T> hit) {
+        if (root == null) {
+            throw new IllegalStateException("PrefixTrie is not built");
+        }
+        int m = query.length();
+        int[][] rows = new int[maxKeyLength + 1][m + 1];
+        for (int i = 0; i <= m; i++) rows[0][i] = i;
+
+        search(root, 0, query, maxDistance, m, rows, hit);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private void search(Node node, int depth, String query, int k, int pathBest, int[][] rows, Hit<T> hit) {
+
+        int m = query.length();
+        int[] row = rows[depth];
+        int best = Math.min(pathBest, row[m]);
+
+        int rowMin = row[0];
+        for (int i = 1; i <= m; i++) rowMin = Math.min(rowMin, row[i]);
+
+        // nothing below can get closer than rowMin: the whole subtree keeps `best`
+        if (rowMin >= best) {
+            if (best <= k) report(node.from, node.to, best, hit);
+            return;
+        }
+        // and nothing below can come within k
+        if (rowMin > k) return;
+
+        if (best <= k) report(node.from, node.terminalsEnd, best, hit);
+        if (node.labels.length == 0) return;
+
+        int[] next = rows[depth + 1];
+        for (int c = 0; c < node.labels.length; c++) {
+            char label = node.labels[c];
+            next[0] = depth + 1;
+            for (int i = 1; i <= m; i++) {
+                int cost = query.charAt(i - 1) == label ? 0 : 1;
+                next[i] = Math.min(Math.min(next[i - 1] + 1, row[i] + 1), row[i - 1] + cost);
+            }
+            search(node.children[c], depth + 1, query, k, best, rows, hit);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void report(int from, int to, int distance, Hit<T> hit) {
+        for (int i = from; i < to; i++) {
+            hit.accept(keys[i], distance, (T) values[i]);
+        }
+    }
+
+    private Node node(int depth, int from, int to) {
+        Node node = new Node();
+        node.from = from;
+        node.to = to;
+
+        int i = from;
+        while (i < to && keys[i].length() == depth) i++;
+        node.terminalsEnd = i;
+
+        List<Character> labels = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (i < to) {
+            char label = keys[i].charAt(depth);
+            int end = i;
+            while (end < to && keys[end].charAt(depth) == label) end++;
+            labels.add(label);
+            children.add(node(depth + 1, i, end));
+            i = end;
+        }
+
+        node.labels = new char[labels.size()];
+        for (int c = 0; c < node.labels.length; c++) node.labels[c] = labels.get(c);
+        node.children = children.toArray(new Node[0]);
+        return node;
+    }
+}
@@ -0,0 +1,71 @@
+package com.metaverse.msme.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A long-running bulk operation submitted through {@code /jobs}. The row
+ * outlives the process, so status and finished artifacts survive a restart,
+ * and is shared by every instance: any of them can report or cancel a job
+ * that another one runs.
+ */
+@Entity
+@Table(name = "bulk_job")
+@Getter
+@Setter
+@NoArgsConstructor
+public class BulkJob {
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    private JobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private JobStatus status;
+
+    @Column(name = "parameters")
+    private String parameters;
+
+    @Column(name = "rows_total")
+    private Long rowsTotal;
+
+    @Column(name = "rows_processed", nullable = false)
+    private Long rowsProcessed;
+
+    @Column(name = "submitted_at", nullable = false)
+    private Instant submittedAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "artifact_path")
+    private String artifactPath;
+
+    // instance running the job (jobs.instance-id), and when it last said so
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "cancel_requested", nullable = false)
+    private boolean cancelRequested;
+}
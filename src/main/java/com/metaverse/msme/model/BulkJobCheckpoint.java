@@ -0,0 +1,54 @@
+package com.metaverse.msme.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Progress of a keyset-paged bulk job. Written in the same transaction as each
+ * batch, so {@code lastSlno} always matches what is actually committed and an
+ * interrupted run resumes right after it.
+ */
+@Entity
+@Table(name = "bulk_job_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+public class BulkJobCheckpoint {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "last_slno", nullable = false)
+    private Integer lastSlno;
+
+    @Column(name = "rows_scanned", nullable = false)
+    private Long rowsScanned;
+
+    @Column(name = "rows_updated", nullable = false)
+    private Long rowsUpdated;
+
+    @Column(name = "gazetteer_version")
+    private String gazetteerVersion;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+}
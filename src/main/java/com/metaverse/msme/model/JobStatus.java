@@ -0,0 +1,15 @@
+package com.metaverse.msme.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED,
+    // was queued or running when the application stopped
+    INTERRUPTED;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
@@ -0,0 +1,6 @@
+package com.metaverse.msme.model;
+
+public enum JobType {
+    VILLAGE_RESOLUTION,
+    EXCEL_EXPORT
+}
@@ -0,0 +1,38 @@
+package com.metaverse.msme.model;
+
+import lombok.Getter;
+
+/**
+ * The few {@code msme_unit_details} columns the Excel export needs, read with a
+ * JPQL constructor expression instead of hydrating the ~90-column entity.
+ * Not managed, so chunks never pile up in the persistence context.
+ */
+@Getter
+public class UnitAddressRow {
+
+    private final Integer slno;
+    private final String unitAddress;
+    private final String district;
+
+    // display columns
+    private final String departmentName;
+    private final String unitName;
+    private final String village;
+
+    // coordinates; they break village ties when the export parses
+    private final String latitude;
+    private final String longitude;
+
+    public UnitAddressRow(Integer slno, String unitAddress, String district,
+                          String departmentName, String unitName, String village,
+                          String latitude, String longitude) {
+        this.slno = slno;
+        this.unitAddress = unitAddress;
+        this.district = district;
+        this.departmentName = departmentName;
+        this.unitName = unitName;
+        this.village = village;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+}
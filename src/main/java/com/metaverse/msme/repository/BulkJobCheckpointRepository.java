@@ -0,0 +1,8 @@
+package com.metaverse.msme.repository;
+
+import com.metaverse.msme.model.BulkJobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BulkJobCheckpointRepository
+        extends JpaRepository<BulkJobCheckpoint, String> {
+}
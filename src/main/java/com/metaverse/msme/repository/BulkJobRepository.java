@@ -0,0 +1,69 @@
+package com.metaverse.msme.repository;
+
+import com.metaverse.msme.model.BulkJob;
+import com.metaverse.msme.model.JobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BulkJobRepository extends JpaRepository<BulkJob, String> {
+
+    @Query("SELECT j FROM BulkJob j ORDER BY j.submittedAt DESC")
+    List<BulkJob> findRecent(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.rowsProcessed = :processed, j.rowsTotal = :total, j.updatedAt = :now " +
+            "WHERE j.id = :id")
+    int updateProgress(@Param("id") String id,
+                       @Param("processed") long processed,
+                       @Param("total") Long total,
+                       @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.heartbeatAt = :now WHERE j.owner = :owner AND j.status IN :statuses")
+    int heartbeat(@Param("owner") String owner,
+                  @Param("statuses") Collection<JobStatus> statuses,
+                  @Param("now") Instant now);
+
+    /** Moves the {@code from} jobs of {@code owner}, or of no owner, to {@code to}. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.status = :to, j.error = :error, j.finishedAt = :now, j.updatedAt = :now " +
+            "WHERE j.status IN :from AND (j.owner = :owner OR j.owner IS NULL)")
+    int markOwned(@Param("from") Collection<JobStatus> from,
+                  @Param("to") JobStatus to,
+                  @Param("error") String error,
+                  @Param("owner") String owner,
+                  @Param("now") Instant now);
+
+    /** Moves the {@code from} jobs whose owner has not sent a heartbeat since {@code staleBefore} to {@code to}. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.status = :to, j.error = :error, j.finishedAt = :now, j.updatedAt = :now " +
+            "WHERE j.status IN :from AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    int markStale(@Param("from") Collection<JobStatus> from,
+                  @Param("to") JobStatus to,
+                  @Param("error") String error,
+                  @Param("staleBefore") Instant staleBefore,
+                  @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.cancelRequested = true, j.updatedAt = :now WHERE j.id = :id AND j.status IN :open")
+    int requestCancel(@Param("id") String id,
+                      @Param("open") Collection<JobStatus> open,
+                      @Param("now") Instant now);
+
+    @Query("SELECT j.cancelRequested FROM BulkJob j WHERE j.id = :id")
+    Optional<Boolean> findCancelRequested(@Param("id") String id);
+}
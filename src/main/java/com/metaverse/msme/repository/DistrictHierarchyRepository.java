@@ -14,5 +14,13 @@ public interface DistrictHierarchyRepository
 
     @Query(value = "SELECT dh FROM DistrictHierarchyEntity dh WHERE dh.districtName = :districtName")
     Optional<DistrictHierarchyEntity> findByDistrictName(@Param("districtName") String districtName);
+
+    /**
+     * Content hash of the whole table; changes whenever any district document
+     * is inserted, updated or removed.
+     */
+    @Query(value = "SELECT coalesce(md5(string_agg(id || ':' || md5(hierarchy_json::text), ',' ORDER BY id)), 'empty') " +
+            "FROM district_hierarchy", nativeQuery = true)
+    String findChangeMarker();
 }
 
@@ -1,6 +1,7 @@
 package com.metaverse.msme.repository;
 
 import com.metaverse.msme.model.MsmeUnitDetails;
+import com.metaverse.msme.model.UnitAddressRow;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -12,9 +13,12 @@ import java.util.List;
 
 @Repository
 public interface MsmeUnitDetailsRepository extends JpaRepository<MsmeUnitDetails, Integer> {
-    List<MsmeUnitDetails> findByVillageIgnoreCaseAndMandalIgnoreCase(String village, String mandal);
+    long countBySlnoGreaterThan(Integer slno);
 
-    @Query("SELECT u FROM MsmeUnitDetails u WHERE u.slno > :after ORDER BY u.slno ASC")
-    List<MsmeUnitDetails> findNextChunk(@Param("after") Integer after, Pageable pageable);
+    /** Keyset chunk with the columns the Excel export shows. */
+    @Query("SELECT new com.metaverse.msme.model.UnitAddressRow(" +
+            "u.slno, u.unitAddress, u.district, u.departmentName, u.unitName, u.village, u.latitude, u.longitude) " +
+            "FROM MsmeUnitDetails u WHERE u.slno > :after ORDER BY u.slno ASC")
+    List<UnitAddressRow> findNextExportChunk(@Param("after") Integer after, Pageable pageable);
 
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.metaverse.msme.service;
+
+import lombok.Data;
+
+/**
+ * One entry of a {@code /address/parse-batch} request. {@code id} is echoed
+ * back unchanged (string or number) so callers can correlate results.
+ */
+@Data
+public class AddressBatchItem {
+    private Object id;
+    private String district;
+    private String address;
+}
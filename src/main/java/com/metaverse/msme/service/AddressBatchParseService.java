@@ -0,0 +1,132 @@
+package com.metaverse.msme.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Streams a batch of addresses through {@link AddressParseService}.
+ * <p>
+ * The request is read one entry at a time, either as a JSON array or as
+ * NDJSON (whitespace-separated root objects). Each entry is parsed and
+ * serialized on the shared {@link ParseExecutors#cpu()} pool, and results are
+ * written back as NDJSON in request order. At most {@code window} entries are
+ * in flight, so memory stays flat however large the batch is and neither
+ * payload is ever held in full.
+ */
+@Service
+public class AddressBatchParseService {
+
+    private static final Logger log = LoggerFactory.getLogger(AddressBatchParseService.class);
+
+    private static final byte NEWLINE = '\n';
+
+    private final AddressParseService addressParseService;
+    private final ObjectMapper objectMapper;
+
+    private final Executor pool;
+    private final int window;
+
+    public AddressBatchParseService(AddressParseService addressParseService,
+                                    ObjectMapper objectMapper,
+                                    ParseExecutors parseExecutors) {
+        this.addressParseService = addressParseService;
+        this.objectMapper = objectMapper;
+        this.pool = parseExecutors.cpu();
+        this.window = Runtime.getRuntime().availableProcessors() * 64;
+    }
+
+    /**
+     * Reads entries from {@code in} and writes one result line per entry to
+     * {@code out}. A malformed request ends the stream with a final error line.
+     *
+     * @return number of entries processed
+     */
+    public int parseBatch(InputStream in, OutputStream out) throws IOException {
+
+        ArrayDeque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>(window);
+        int count = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+
+            JsonToken first = parser.nextToken();
+            boolean array = first == JsonToken.START_ARRAY;
+            JsonToken token = array ? parser.nextToken() : first;
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                AddressBatchItem item = objectMapper.readValue(parser, AddressBatchItem.class);
+                inFlight.add(CompletableFuture.supplyAsync(() -> parseLine(item), pool));
+                count++;
+
+                if (inFlight.size() >= window) {
+                    writeHead(inFlight, out);
+                }
+                token = parser.nextToken();
+            }
+
+            while (!inFlight.isEmpty()) {
+                writeHead(inFlight, out);
+            }
+
+        } catch (JsonProcessingException e) {
+            // malformed input: results so far are already out, say where it stopped
+            drain(inFlight, out);
+            log.warn("parse-batch request rejected after {} entries: {}", count, e.getMessage());
+            out.write(serialize(AddressBatchResult.failed(null, "Malformed request after " + count + " entries: " + e.getMessage())));
+            out.write(NEWLINE);
+        } finally {
+            inFlight.forEach(f -> f.cancel(false));
+            out.flush();
+        }
+        return count;
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private byte[] parseLine(AddressBatchItem item) {
+        AddressBatchResult line;
+        try {
+            line = AddressBatchResult.ok(item.getId(),
+                    addressParseService.parse(item.getDistrict(), item.getAddress()));
+        } catch (Exception ex) {
+            log.debug("parse failed for id={}: {}", item.getId(), ex.getMessage());
+            line = AddressBatchResult.failed(item.getId(), "Parse failed: " + ex.getMessage());
+        }
+        return serialize(line);
+    }
+
+    private void writeHead(ArrayDeque<CompletableFuture<byte[]>> inFlight, OutputStream out) throws IOException {
+        CompletableFuture<byte[]> head = inFlight.poll();
+        // push what is already written before waiting on a slow entry
+        if (!head.isDone()) {
+            out.flush();
+        }
+        out.write(head.join());
+        out.write(NEWLINE);
+    }
+
+    private void drain(ArrayDeque<CompletableFuture<byte[]>> inFlight, OutputStream out) throws IOException {
+        while (!inFlight.isEmpty()) {
+            writeHead(inFlight, out);
+        }
+    }
+
+    private byte[] serialize(AddressBatchResult line) {
+        try {
+            return objectMapper.writeValueAsBytes(line);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not serialize parse result", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.metaverse.msme.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+/**
+ * One NDJSON line of a {@code /address/parse-batch} response: either the
+ * parse result or the error for that entry.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AddressBatchResult {
+
+    private final Object id;
+    private final AddressParseResult result;
+    private final String error;
+
+    private AddressBatchResult(Object id, AddressParseResult result, String error) {
+        this.id = id;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static AddressBatchResult ok(Object id, AddressParseResult result) {
+        return new AddressBatchResult(id, result, null);
+    }
+
+    public static AddressBatchResult failed(Object id, String error) {
+        return new AddressBatchResult(id, null, error);
+    }
+}
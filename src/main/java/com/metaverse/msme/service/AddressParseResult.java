@@ -21,6 +21,10 @@ public class AddressParseResult {
     private final String village;
     private final Set<String> multipleVillages;
 
+    // district the address was routed to and the gazetteer snapshot it was resolved against
+    private final String district;
+    private final String gazetteerVersion;
+
     private AddressParseResult(
             MandalDetectionStatus mandalStatus,
             String mandal,
@@ -28,6 +32,19 @@ public class AddressParseResult {
             VillageDetectionStatus villageStatus,
             String village,
             Set<String> multipleVillages) {
+        this(mandalStatus, mandal, multipleMandals,
+                villageStatus, village, multipleVillages, null, null);
+    }
+
+    private AddressParseResult(
+            MandalDetectionStatus mandalStatus,
+            String mandal,
+            Set<String> multipleMandals,
+            VillageDetectionStatus villageStatus,
+            String village,
+            Set<String> multipleVillages,
+            String district,
+            String gazetteerVersion) {
 
         this.mandalStatus = mandalStatus;
         this.mandal = mandal;
@@ -35,6 +52,82 @@ public class AddressParseResult {
         this.villageStatus = villageStatus;
         this.village = village;
         this.multipleVillages = multipleVillages;
+        this.district = district;
+        this.gazetteerVersion = gazetteerVersion;
+    }
+
+    /**
+     * Copy of this result stamped with the district it was routed to and the
+     * gazetteer snapshot version it was resolved against.
+     */
+    public AddressParseResult resolvedAgainst(String district, String gazetteerVersion) {
+        return new AddressParseResult(
+                mandalStatus,
+                mandal,
+                multipleMandals,
+                villageStatus,
+                village,
+                multipleVillages,
+                district,
+                gazetteerVersion
+        );
+    }
+
+    /**
+     * Copy of this result with a different mandal display name.
+     */
+    public AddressParseResult withMandal(String displayMandal) {
+        return new AddressParseResult(
+                mandalStatus,
+                displayMandal,
+                multipleMandals,
+                villageStatus,
+                village,
+                multipleVillages,
+                district,
+                gazetteerVersion
+        );
+    }
+
+    /**
+     * Copy of this result with a different village outcome.
+     */
+    public AddressParseResult withVillage(VillageDetectionResult villageResult) {
+        return new AddressParseResult(
+                mandalStatus,
+                mandal,
+                multipleMandals,
+                villageResult.getStatus(),
+                villageResult.getVillage(),
+                villageResult.getMatchedVillages(),
+                district,
+                gazetteerVersion
+        );
+    }
+
+    /**
+     * Rebuilds a result read back from {@code unit_address_resolution}.
+     */
+    public static AddressParseResult restored(
+            MandalDetectionStatus mandalStatus,
+            String mandal,
+            Set<String> multipleMandals,
+            VillageDetectionStatus villageStatus,
+            String village,
+            Set<String> multipleVillages,
+            String district,
+            String gazetteerVersion) {
+
+        return new AddressParseResult(
+                mandalStatus,
+                mandal,
+                multipleMandals,
+                villageStatus,
+                village,
+                multipleVillages,
+                district,
+                gazetteerVersion
+        );
     }
 
     /* --------------------------------------------
@@ -3,48 +3,212 @@ package com.metaverse.msme.service;
 import com.metaverse.msme.address.AddressNormalizer;
 import com.metaverse.msme.address.AdminNameParts;
 import com.metaverse.msme.extractor.*;
-import com.metaverse.msme.model.MsmeUnitDetails;
-import com.metaverse.msme.repository.MsmeUnitDetailsRepository;
-import jakarta.persistence.EntityManager;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.jdbc.core.JdbcTemplate;
+import com.metaverse.msme.gazetteer.Gazetteer;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 @Service
 public class AddressParseService {
 
+    /**
+     * Version of the parsing rules. Bump it whenever a detector or normalizer
+     * change can alter results: bulk re-resolution treats every unit resolved
+     * under another version as stale and parses it again.
+     */
+    public static final String PARSER_VERSION = "2";
+
     private final MandalDetector mandalDetector;
     private final VillageDetector villageDetector;
     private final AddressNormalizer addressNormalizer; // ✅ MUST EXIST
-    private final MsmeUnitDetailsRepository repository;
-
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private final GazetteerProvider gazetteerProvider;
+    private final DistrictRouter districtRouter;
+    private final ParseResultCache parseCache;
+    private final VillageCentroids villageCentroids;
 
-    @Autowired
-    private  EntityManager entityManager;
     public AddressParseService(
             MandalDetector mandalDetector,
             VillageDetector villageDetector,
-            AddressNormalizer addressNormalizer, MsmeUnitDetailsRepository repository) {
+            AddressNormalizer addressNormalizer,
+            GazetteerProvider gazetteerProvider,
+            DistrictRouter districtRouter,
+            ParseResultCache parseCache,
+            VillageCentroids villageCentroids) {
 
         this.mandalDetector = mandalDetector;
         this.villageDetector = villageDetector;
         this.addressNormalizer = addressNormalizer; // ✅ MUST ASSIGN
-        this.repository = repository;
+        this.gazetteerProvider = gazetteerProvider;
+        this.districtRouter = districtRouter;
+        this.parseCache = parseCache;
+        this.villageCentroids = villageCentroids;
     }
 
+    /**
+     * Parses an address against the district it belongs to. {@code district}
+     * is a hint (the unit's district column or the caller's parameter) and may
+     * be null; the router falls back to district names in the address and then
+     * to the configured default district.
+     */
     public AddressParseResult parse(String district, String address) {
+        return parse(district, address, null);
+    }
+
+    /**
+     * {@link #parse(String, String)}, letting the unit's {@code location}
+     * (may be null) break a tie between several mandals or villages the
+     * address matches, see {@link VillageCentroids}.
+     */
+    public AddressParseResult parse(String district, String address, VillageCentroids.Location location) {
+
+        // one snapshot for the whole parse, even if a reload swaps it meanwhile
+        Gazetteer gazetteer = gazetteerProvider.get();
+
+        // tokenize once; routing and both detectors share the tokens
+        List<String> tokens = addressNormalizer.meaningfulTokenSet(address);
+        String routed = districtRouter.route(gazetteer, district, tokens);
+
+        ParseResultCache.Entry entry = parseCache.get(
+                gazetteer.getVersion(), routed, tokens,
+                () -> resolve(gazetteer, routed, tokens));
+        entry = located(gazetteer, routed, tokens, entry, location, null);
+
+        if (entry.getDbMandal() == null) {
+            return entry.getResult();
+        }
+
+        // 3️⃣ Resolve mandal display-friendly version
+        return entry.getResult().withMandal(
+                resolveMandalDisplayName(entry.getDbMandal(), address));
+    }
+
+    /**
+     * Parses many addresses at once, in {@code items} order. Addresses are
+     * grouped by routed district and meaningful-token signature first, and
+     * each distinct signature is resolved once (through the parse cache); its
+     * result then fans out to every member of the group. Units sharing the
+     * village and mandal text but not the door number cost one resolution.
+     * Only the mandal display name, which depends on the raw address, is
+     * worked out per member.
+     *
+     * @param executor runs the distinct resolutions; null resolves them on
+     *                 the calling thread
+     */
+    public <T> GroupedParse parseAll(List<T> items,
+                                     Function<T, String> district,
+                                     Function<T, String> address,
+                                     Executor executor) {
+        return parseAll(items, district, address, null, executor);
+    }
+
+    /**
+     * {@link #parseAll(List, Function, Function, Executor)}, letting each
+     * item's {@code location} (null, or returning null, for none) break a tie
+     * between several mandals or villages its address matches, see
+     * {@link VillageCentroids}. The tie is broken per member, after the fan
+     * out; village detection under a mandal picked that way runs once per
+     * group and mandal.
+     */
+    public <T> GroupedParse parseAll(List<T> items,
+                                     Function<T, String> district,
+                                     Function<T, String> address,
+                                     Function<T, VillageCentroids.Location> location,
+                                     Executor executor) {
+
+        Gazetteer gazetteer = gazetteerProvider.get();
+
+        // pre-pass: tokenize and route every address, group by signature
+        Map<String, SignatureGroup> groups = new LinkedHashMap<>();
+        SignatureGroup[] groupOf = new SignatureGroup[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            List<String> tokens = addressNormalizer.meaningfulTokenSet(address.apply(items.get(i)));
+            String routed = districtRouter.route(gazetteer, district.apply(items.get(i)), tokens);
+            groupOf[i] = groups.computeIfAbsent(
+                    ParseResultCache.key(gazetteer.getVersion(), routed, tokens),
+                    k -> new SignatureGroup(routed, tokens));
+        }
+
+        // one resolution per distinct signature
+        if (executor == null) {
+            groups.values().forEach(g -> g.entry = resolveGroup(gazetteer, g));
+        } else {
+            CompletableFuture.allOf(groups.values().stream()
+                    .map(g -> CompletableFuture.runAsync(() -> g.entry = resolveGroup(gazetteer, g), executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+
+        // fan out
+        List<AddressParseResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            SignatureGroup group = groupOf[i];
+            ParseResultCache.Entry entry = location == null ? group.entry
+                    : located(gazetteer, group.district, group.tokens, group.entry,
+                            location.apply(items.get(i)), group.byMandal());
+            results.add(entry.getDbMandal() == null
+                    ? entry.getResult()
+                    : entry.getResult().withMandal(
+                            resolveMandalDisplayName(entry.getDbMandal(), address.apply(items.get(i)))));
+        }
+        return new GroupedParse(results, groups.size());
+    }
+
+    /** Results of {@link #parseAll}, with how many distinct signatures were resolved. */
+    public static final class GroupedParse {
+
+        private final List<AddressParseResult> results;
+        private final int signatures;
+
+        GroupedParse(List<AddressParseResult> results, int signatures) {
+            this.results = results;
+            this.signatures = signatures;
+        }
+
+        /** One result per item, in item order. */
+        public List<AddressParseResult> getResults() {
+            return results;
+        }
+
+        public int getSignatures() {
+            return signatures;
+        }
+    }
+
+    private static final class SignatureGroup {
+        final String district;
+        final List<String> tokens;
+        // written by the resolving thread, read after the join
+        volatile ParseResultCache.Entry entry;
+        // mandal picked by location -> resolution under it; fan-out thread only
+        Map<String, ParseResultCache.Entry> byMandal;
+
+        SignatureGroup(String district, List<String> tokens) {
+            this.district = district;
+            this.tokens = tokens;
+        }
+
+        Map<String, ParseResultCache.Entry> byMandal() {
+            if (byMandal == null) byMandal = new HashMap<>();
+            return byMandal;
+        }
+    }
+
+    private ParseResultCache.Entry resolveGroup(Gazetteer gazetteer, SignatureGroup group) {
+        return parseCache.get(gazetteer.getVersion(), group.district, group.tokens,
+                () -> resolve(gazetteer, group.district, group.tokens));
+    }
+
+    /**
+     * Resolves mandal and village from the address tokens alone, so the result
+     * can be cached by token signature.
+     */
+    private ParseResultCache.Entry resolve(Gazetteer gazetteer, String district, List<String> tokens) {
 
         // 1️⃣ Detect mandal normally
-        MandalDetectionResult mandalResult = mandalDetector.detectMandal(district, address);
+        MandalDetectionResult mandalResult = mandalDetector.detectMandal(gazetteer, district, tokens);
 
     /* ----------------------------------------------------------
        CASE 1 & CASE 2 HANDLING
@@ -57,9 +221,10 @@ public class AddressParseService {
             // Try detecting village under fallback mandal
             VillageDetectionResult fallbackVillage =
                     villageDetector.detectVillage(
+                            gazetteer,
                             district,
                             fallbackMandal,
-                            address
+                            tokens
                     );
 
             // ⭐ CASE 2 → Valid village FOUND under fallback mandal
@@ -70,16 +235,16 @@ public class AddressParseService {
                 MandalDetectionResult fakeMandalResult =
                         MandalDetectionResult.single(fallbackMandal);
 
-                return AddressParseResult.combineResolved(
+                return cached(gazetteer, district, AddressParseResult.combineResolved(
                         fakeMandalResult,
                         fallbackMandal,       // mandal = Adilabad
                         fallbackVillage       // village = Mallapur
-                );
+                ), null);
             }
 
             // ⭐ CASE 1 → No village found even under fallback mandal
             // Use existing factory method — gives MANDAL_NOT_FOUND + null village
-            return AddressParseResult.fromMandalResult(mandalResult);
+            return cached(gazetteer, district, AddressParseResult.fromMandalResult(mandalResult), null);
         }
 
     /* ----------------------------------------------------------
@@ -87,7 +252,7 @@ public class AddressParseService {
        ---------------------------------------------------------- */
 
         if (mandalResult.getStatus() != MandalDetectionStatus.SINGLE_MANDAL) {
-            return AddressParseResult.fromMandalResult(mandalResult);
+            return cached(gazetteer, district, AddressParseResult.fromMandalResult(mandalResult), null);
         }
 
         // 2️⃣ Use DB mandal name for village detection
@@ -95,20 +260,74 @@ public class AddressParseService {
 
         VillageDetectionResult villageResult =
                 villageDetector.detectVillage(
+                        gazetteer,
                         district,
                         dbMandal,
-                        address
+                        tokens
                 );
 
-        // 3️⃣ Resolve mandal display-friendly version
-        String displayMandal =
-                resolveMandalDisplayName(dbMandal, address);
-
-        return AddressParseResult.combineResolved(
+        // display name is resolved per call from the raw address, see parse()
+        return cached(gazetteer, district, AddressParseResult.combineResolved(
                 mandalResult,
-                displayMandal,
+                dbMandal,
                 villageResult
-        );
+        ), dbMandal);
+    }
+
+    /**
+     * Breaks a MULTIPLE_MANDALS or MULTIPLE_VILLAGES tie in {@code entry}
+     * with the unit's location: the nearest mandal is resolved as if detected
+     * (NEAREST_MANDAL), then the nearest village (NEAREST_VILLAGE). Returns
+     * {@code entry} itself when there is no tie or the location cannot break it.
+     *
+     * @param byMandal memoizes resolutions under a picked mandal; may be null
+     */
+    private ParseResultCache.Entry located(Gazetteer gazetteer, String district, List<String> tokens,
+                                           ParseResultCache.Entry entry, VillageCentroids.Location location,
+                                           Map<String, ParseResultCache.Entry> byMandal) {
+        if (location == null) {
+            return entry;
+        }
+        AddressParseResult result = entry.getResult();
+
+        if (result.getMandalStatus() == MandalDetectionStatus.MULTIPLE_MANDALS) {
+            Set<String> mandals = result.getMultipleMandals();
+            String mandal = villageCentroids.nearestMandal(district, mandals, location);
+            if (mandal == null) {
+                return entry;
+            }
+            entry = byMandal == null
+                    ? resolveUnder(gazetteer, district, tokens, mandal, mandals)
+                    : byMandal.computeIfAbsent(mandal, m -> resolveUnder(gazetteer, district, tokens, m, mandals));
+            result = entry.getResult();
+        }
+
+        if (result.getVillageStatus() == VillageDetectionStatus.MULTIPLE_VILLAGES) {
+            Set<String> villages = result.getMultipleVillages();
+            String village = villageCentroids.nearestVillage(district, result.getMandal(), villages, location);
+            if (village != null) {
+                entry = new ParseResultCache.Entry(
+                        result.withVillage(VillageDetectionResult.nearest(village, villages)), entry.getDbMandal());
+            }
+        }
+        return entry;
+    }
+
+    // village detection under a mandal picked by location
+    private ParseResultCache.Entry resolveUnder(Gazetteer gazetteer, String district, List<String> tokens,
+                                                String mandal, Set<String> mandals) {
+        VillageDetectionResult villageResult = villageDetector.detectVillage(gazetteer, district, mandal, tokens);
+        return cached(gazetteer, district, AddressParseResult.combineResolved(
+                MandalDetectionResult.nearest(mandal, mandals),
+                mandal,
+                villageResult
+        ), mandal);
+    }
+
+    private ParseResultCache.Entry cached(Gazetteer gazetteer, String district,
+                                          AddressParseResult result, String dbMandal) {
+        return new ParseResultCache.Entry(
+                result.resolvedAgainst(district, gazetteer.getVersion()), dbMandal);
     }
 
     // ✅ YOUR DYNAMIC METHOD LIVES HERE
@@ -162,66 +381,4 @@ public class AddressParseService {
         }
         return new AdminNameParts(String.join(" ", baseParts).trim(), qualifiers);
     }
-
-    @Transactional
-    public int updateAllUnitsVillage() {
-
-        int page = 0;
-        int size = 2000;                // BATCH SIZE
-        int totalUpdated = 0;
-
-        Page<MsmeUnitDetails> pageResult;
-
-        // Cache to avoid parsing same address again
-        Map<String, AddressParseResult> cache = new ConcurrentHashMap<>();
-
-        do {
-            pageResult = repository.findAll(PageRequest.of(page, size));
-
-            Map<Integer, String> updateMap = new ConcurrentHashMap<>();
-
-            // PARALLEL PROCESSING
-            pageResult.getContent().parallelStream().forEach(unit -> {
-
-                if (unit.getUnitAddress() == null) return;
-
-                // CACHE: Parse once for repeated addresses
-                AddressParseResult result = cache.computeIfAbsent(
-                        unit.getUnitAddress(),
-                        addr -> parse("Adilabad", addr)
-                );
-
-                if (result != null && result.getVillage() != null) {
-                    updateMap.put(unit.getSlno(), result.getVillage());
-                }
-            });
-
-            // BULK UPDATE
-            if (!updateMap.isEmpty()) {
-                batchUpdateVillage(updateMap);
-                totalUpdated += updateMap.size();
-            }
-
-            System.out.println("Batch " + page + " completed. Updated: " + totalUpdated);
-
-            page++;
-
-        } while (!pageResult.isLast());
-
-        return totalUpdated;
-    }
-
-
-
-    public void batchUpdateVillage(Map<Integer, String> updates) {
-
-        String sql = "UPDATE msme_unit_details SET villageId = ? WHERE slno = ?";
-
-        jdbcTemplate.batchUpdate(sql, updates.entrySet(), 500,
-                (ps, entry) -> {
-                    ps.setString(1, entry.getValue());
-                    ps.setInt(2, entry.getKey());
-                }
-        );
-    }
 }
\ No newline at end of file
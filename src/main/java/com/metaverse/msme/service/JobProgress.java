@@ -0,0 +1,32 @@
+package com.metaverse.msme.service;
+
+/**
+ * Progress and cancellation hook handed to bulk work. Implementations are
+ * called from the worker thread; {@link #isCancelled()} is checked between
+ * batches, so a cancel takes effect once the batch in flight is done.
+ */
+public interface JobProgress {
+
+    /** For synchronous callers that neither report progress nor cancel. */
+    JobProgress NONE = new JobProgress() {
+        @Override
+        public void total(long rows) {
+        }
+
+        @Override
+        public void advance(long rows) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /** Expected number of rows, when known up front. */
+    void total(long rows);
+
+    void advance(long rows);
+
+    boolean isCancelled();
+}
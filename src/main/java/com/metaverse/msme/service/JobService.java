@@ -0,0 +1,416 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.extractor.MsmeExcelService;
+import com.metaverse.msme.model.BulkJob;
+import com.metaverse.msme.model.JobStatus;
+import com.metaverse.msme.model.JobType;
+import com.metaverse.msme.repository.BulkJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs bulk operations in the background.
+ * <p>
+ * Submitting persists a {@link BulkJob} row and returns at once; the work runs
+ * on a small bounded pool. Progress is kept in memory for live status and
+ * written to the row at most once a second. Export artifacts are written to
+ * {@code jobs.artifact-dir} and stay downloadable after the job finishes.
+ * <p>
+ * Several instances share the {@code bulk_job} table, so the row is the truth
+ * every instance reports from. It names the instance running the job
+ * ({@code jobs.instance-id}), which renews a heartbeat on it. Cancelling sets a
+ * flag on the row, from any instance; the worker polls it and stops after the
+ * batch in flight. Queued or running jobs are marked
+ * {@link JobStatus#INTERRUPTED} when their own instance starts again or when
+ * their heartbeat goes stale; resubmitting a village resolution resumes from
+ * its checkpoint. Artifacts are only downloadable from every instance when
+ * {@code jobs.artifact-dir} is storage they all share.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    private static final long PERSIST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final List<JobStatus> OPEN = List.of(JobStatus.QUEUED, JobStatus.RUNNING);
+
+    private final BulkJobRepository repository;
+    private final VillageResolutionJob villageResolutionJob;
+    private final MsmeExcelService excelService;
+    private final Path artifactDir;
+    private final String instanceId;
+    private final Duration staleAfter;
+
+    private final ExecutorService pool;
+    private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+
+    public JobService(BulkJobRepository repository,
+                      VillageResolutionJob villageResolutionJob,
+                      MsmeExcelService excelService,
+                      @Value("${jobs.artifact-dir:${java.io.tmpdir}/msme-jobs}") String artifactDir,
+                      @Value("${jobs.max-concurrent:2}") int maxConcurrent,
+                      @Value("${jobs.instance-id:}") String instanceId,
+                      @Value("${jobs.stale-after-ms:60000}") long staleAfterMs) {
+        this.repository = repository;
+        this.villageResolutionJob = villageResolutionJob;
+        this.excelService = excelService;
+        this.artifactDir = Paths.get(artifactDir);
+        this.instanceId = instanceId.isBlank() ? hostName() : instanceId;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "bulk-job-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void recoverInterrupted() {
+        // only this instance's own jobs, and those nobody is running any more:
+        // other instances may well be working on theirs
+        Instant now = Instant.now();
+        int interrupted = repository.markOwned(OPEN, JobStatus.INTERRUPTED,
+                "Application stopped before the job finished", instanceId, now);
+        interrupted += markStale(now);
+        if (interrupted > 0) {
+            log.warn("{} bulk job(s) were interrupted by the last shutdown of {} or of another instance",
+                    interrupted, instanceId);
+        }
+    }
+
+    /**
+     * Renews the heartbeat of this instance's jobs, applies cancels requested
+     * on other instances to jobs still queued here, and interrupts the jobs of
+     * instances that have gone quiet.
+     */
+    @Scheduled(
+            fixedDelayString = "${jobs.heartbeat-ms:10000}",
+            initialDelayString = "${jobs.heartbeat-ms:10000}")
+    public void heartbeat() {
+        try {
+            Instant now = Instant.now();
+            if (!running.isEmpty()) {
+                repository.heartbeat(instanceId, OPEN, now);
+            }
+            for (RunningJob job : running.values()) {
+                if (job.isCancelled()) {
+                    cancelLocally(job);
+                }
+            }
+
+            int interrupted = markStale(now);
+            if (interrupted > 0) {
+                log.warn("{} bulk job(s) interrupted: their instance stopped sending heartbeats", interrupted);
+            }
+        } catch (Exception e) {
+            log.error("Bulk job heartbeat failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(job -> job.cancelled = true);
+        pool.shutdown();
+    }
+
+    public BulkJob submitVillageResolution(boolean restart) {
+        return submit(JobType.VILLAGE_RESOLUTION, "restart=" + restart, null,
+                (job, out) -> villageResolutionJob.run(restart, job));
+    }
+
+    public BulkJob submitExcelExport(int startAfterSlno, int totalRecords) {
+        return submit(JobType.EXCEL_EXPORT, "start=" + startAfterSlno + "&end=" + totalRecords, ".xlsx",
+                (job, out) -> excelService.writeExcel(startAfterSlno, totalRecords, out, job));
+    }
+
+    public Optional<JobView> status(String id) {
+        return repository.findById(id).map(this::view);
+    }
+
+    public List<JobView> recent(int limit) {
+        return repository.findRecent(PageRequest.of(0, limit)).stream().map(this::view).toList();
+    }
+
+    /**
+     * Requests cancellation, whichever instance runs the job. A running job
+     * stops after its current batch; a queued one is cancelled at once here,
+     * or within a heartbeat on its own instance.
+     *
+     * @return false when the job is unknown or already finished
+     */
+    public boolean cancel(String id) {
+        if (repository.requestCancel(id, OPEN, Instant.now()) == 0) {
+            return false;
+        }
+        RunningJob job = running.get(id);
+        if (job != null) {
+            job.cancelled = true;
+            cancelLocally(job);
+        }
+        log.info("Cancellation requested for job {}", id);
+        return true;
+    }
+
+    /** Artifact of a succeeded export job, if it still exists. */
+    public Optional<Path> artifact(String id) {
+        // by file name: the shared directory may be mounted elsewhere on this instance
+        return repository.findById(id)
+                .filter(j -> j.getStatus() == JobStatus.SUCCEEDED && j.getArtifactPath() != null)
+                .map(j -> artifactDir.resolve(Paths.get(j.getArtifactPath()).getFileName()))
+                .filter(Files::isReadable);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    @FunctionalInterface
+    private interface Work {
+        void run(RunningJob job, OutputStream artifact) throws Exception;
+    }
+
+    private BulkJob submit(JobType type, String parameters, String artifactSuffix, Work work) {
+        Instant now = Instant.now();
+        BulkJob entity = new BulkJob();
+        entity.setId(UUID.randomUUID().toString());
+        entity.setType(type);
+        entity.setStatus(JobStatus.QUEUED);
+        entity.setParameters(parameters);
+        entity.setRowsProcessed(0L);
+        entity.setSubmittedAt(now);
+        entity.setUpdatedAt(now);
+        entity.setOwner(instanceId);
+        entity.setHeartbeatAt(now);
+        BulkJob saved = repository.save(entity);
+
+        RunningJob job = new RunningJob(saved.getId());
+        running.put(job.id, job);
+        job.future = pool.submit(() -> execute(job, artifactSuffix, work));
+
+        log.info("Job {} ({}) submitted with {}", job.id, type, parameters);
+        return saved;
+    }
+
+    private void execute(RunningJob job, String artifactSuffix, Work work) {
+        Path artifact = null;
+        try {
+            if (job.isCancelled()) {
+                finish(job.id, JobStatus.CANCELLED, null, 0, job.total);
+                return;
+            }
+            markStarted(job.id);
+
+            if (artifactSuffix == null) {
+                work.run(job, null);
+            } else {
+                Files.createDirectories(artifactDir);
+                artifact = artifactDir.resolve(job.id + artifactSuffix);
+                try (OutputStream out = Files.newOutputStream(artifact)) {
+                    work.run(job, out);
+                }
+            }
+
+            if (job.cancelled) {
+                deleteQuietly(artifact);
+                finish(job.id, JobStatus.CANCELLED, null, job.processed.get(), job.total);
+            } else {
+                finish(job.id, JobStatus.SUCCEEDED, null, job.processed.get(), job.total, artifact);
+                log.info("Job {} finished: {} rows", job.id, job.processed.get());
+            }
+
+        } catch (Exception e) {
+            deleteQuietly(artifact);
+            if (job.cancelled) {
+                finish(job.id, JobStatus.CANCELLED, null, job.processed.get(), job.total);
+            } else {
+                log.error("Job {} failed", job.id, e);
+                finish(job.id, JobStatus.FAILED, String.valueOf(e.getMessage()), job.processed.get(), job.total);
+            }
+        } finally {
+            running.remove(job.id);
+        }
+    }
+
+    private void cancelLocally(RunningJob job) {
+        if (job.future != null && job.future.cancel(false)) {
+            // never started: the worker will not run to record it
+            running.remove(job.id);
+            finish(job.id, JobStatus.CANCELLED, null, job.processed.get(), job.total);
+        }
+    }
+
+    private int markStale(Instant now) {
+        return repository.markStale(OPEN, JobStatus.INTERRUPTED,
+                "The instance running the job stopped before it finished", now.minus(staleAfter), now);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return ManagementFactory.getRuntimeMXBean().getName();
+        }
+    }
+
+    private void markStarted(String id) {
+        repository.findById(id).ifPresent(j -> {
+            Instant now = Instant.now();
+            j.setStatus(JobStatus.RUNNING);
+            j.setStartedAt(now);
+            j.setUpdatedAt(now);
+            repository.save(j);
+        });
+    }
+
+    private void finish(String id, JobStatus status, String error, long processed, Long total) {
+        finish(id, status, error, processed, total, null);
+    }
+
+    private void finish(String id, JobStatus status, String error, long processed, Long total, Path artifact) {
+        repository.findById(id).ifPresent(j -> {
+            Instant now = Instant.now();
+            j.setStatus(status);
+            j.setError(error);
+            j.setRowsProcessed(processed);
+            j.setRowsTotal(total);
+            j.setFinishedAt(now);
+            j.setUpdatedAt(now);
+            if (artifact != null) {
+                j.setArtifactPath(artifact.toAbsolutePath().toString());
+            }
+            repository.save(j);
+        });
+    }
+
+    private void deleteQuietly(Path artifact) {
+        if (artifact == null) return;
+        try {
+            Files.deleteIfExists(artifact);
+        } catch (IOException e) {
+            log.warn("Could not delete partial artifact {}", artifact, e);
+        }
+    }
+
+    private JobView view(BulkJob entity) {
+        RunningJob live = running.get(entity.getId());
+
+        long processed = live != null ? live.processed.get() : entity.getRowsProcessed();
+        Long total = live != null && live.total != null ? live.total : entity.getRowsTotal();
+
+        Double rowsPerSecond = null;
+        Long etaSeconds = null;
+        if (entity.getStartedAt() != null) {
+            Instant end = entity.getFinishedAt() != null ? entity.getFinishedAt() : Instant.now();
+            double seconds = Duration.between(entity.getStartedAt(), end).toMillis() / 1000.0;
+            if (seconds > 0) {
+                rowsPerSecond = processed / seconds;
+            }
+            if (entity.getStatus() == JobStatus.RUNNING && total != null && rowsPerSecond != null && rowsPerSecond > 0) {
+                etaSeconds = (long) Math.ceil(Math.max(0, total - processed) / rowsPerSecond);
+            }
+        }
+
+        return new JobView(
+                entity.getId(),
+                entity.getType(),
+                entity.getStatus(),
+                entity.getParameters(),
+                processed,
+                total,
+                rowsPerSecond,
+                etaSeconds,
+                entity.getSubmittedAt(),
+                entity.getStartedAt(),
+                entity.getFinishedAt(),
+                entity.getError(),
+                entity.getStatus() == JobStatus.SUCCEEDED && entity.getArtifactPath() != null,
+                entity.isCancelRequested() || (live != null && live.cancelled),
+                entity.getOwner()
+        );
+    }
+
+    /**
+     * In-memory handle of a queued or running job on this instance; also the
+     * progress sink the worker reports to.
+     */
+    private final class RunningJob implements JobProgress {
+
+        private final String id;
+        private final AtomicLong processed = new AtomicLong();
+        private volatile Long total;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+        private volatile long lastPersistNanos;
+        private volatile long lastCancelCheckNanos;
+
+        RunningJob(String id) {
+            this.id = id;
+            // the first check goes to the row
+            this.lastCancelCheckNanos = System.nanoTime() - PERSIST_INTERVAL_NANOS;
+        }
+
+        @Override
+        public void total(long rows) {
+            this.total = rows;
+            persist(true);
+        }
+
+        @Override
+        public void advance(long rows) {
+            processed.addAndGet(rows);
+            persist(false);
+        }
+
+        // the cancel may come from any instance, so the row decides
+        @Override
+        public boolean isCancelled() {
+            long now = System.nanoTime();
+            if (!cancelled && now - lastCancelCheckNanos >= PERSIST_INTERVAL_NANOS) {
+                lastCancelCheckNanos = now;
+                try {
+                    if (repository.findCancelRequested(id).orElse(false)) {
+                        cancelled = true;
+                    }
+                } catch (RuntimeException e) {
+                    log.debug("Could not check cancellation of job {}: {}", id, e.getMessage());
+                }
+            }
+            return cancelled;
+        }
+
+        private void persist(boolean force) {
+            long now = System.nanoTime();
+            if (!force && now - lastPersistNanos < PERSIST_INTERVAL_NANOS) return;
+            lastPersistNanos = now;
+            try {
+                repository.updateProgress(id, processed.get(), total, Instant.now());
+            } catch (RuntimeException e) {
+                log.debug("Could not persist progress of job {}: {}", id, e.getMessage());
+            }
+        }
+    }
+}
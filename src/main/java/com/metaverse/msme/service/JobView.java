@@ -0,0 +1,33 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.model.JobStatus;
+import com.metaverse.msme.model.JobType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Status of a bulk job as reported by {@code /jobs}: persisted state merged
+ * with live progress while the job runs.
+ */
+@Getter
+@AllArgsConstructor
+public class JobView {
+    private final String id;
+    private final JobType type;
+    private final JobStatus status;
+    private final String parameters;
+    private final long rowsProcessed;
+    private final Long rowsTotal;
+    private final Double rowsPerSecond;
+    private final Long etaSeconds;
+    private final Instant submittedAt;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final String error;
+    private final boolean artifactAvailable;
+    private final boolean cancelRequested;
+    // jobs.instance-id of the instance running it
+    private final String owner;
+}
@@ -0,0 +1,197 @@
+package com.metaverse.msme.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The executors every parse path shares, instead of each request or job
+ * starting threads of its own.
+ * <ul>
+ *   <li>{@link #cpu()}: address parsing. Fixed at one thread per core
+ *   ({@code parse.executor.threads}), with a bounded queue. When the queue is
+ *   full the submitting thread parses the task itself, which slows the
+ *   producer down instead of piling up work.</li>
+ *   <li>{@link #io()}: stages that mostly wait on the database or the network,
+ *   such as the bulk job's cursor reader. Virtual threads when the JVM has them
+ *   and {@code parse.executor.io-virtual-threads} is on, otherwise a cached
+ *   pool of daemon threads.</li>
+ * </ul>
+ * Both drain on shutdown for up to {@code parse.executor.shutdown-timeout-seconds}
+ * before being interrupted.
+ */
+@Component
+public class ParseExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(ParseExecutors.class);
+
+    private final ThreadPoolExecutor cpu;
+    private final CountingExecutor io;
+    private final boolean virtualIo;
+    private final long shutdownTimeoutSeconds;
+
+    private final LongAdder callerRuns = new LongAdder();
+
+    public ParseExecutors(@Value("${parse.executor.threads:0}") int threads,
+                          @Value("${parse.executor.queue-capacity:10000}") int queueCapacity,
+                          @Value("${parse.executor.io-virtual-threads:true}") boolean ioVirtualThreads,
+                          @Value("${parse.executor.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.cpu = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                daemonThreads("parse-"),
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Parse executor is shut down");
+                    }
+                    // back-pressure: the producer does the work itself
+                    callerRuns.increment();
+                    task.run();
+                });
+
+        ExecutorService virtual = ioVirtualThreads ? virtualThreadExecutor() : null;
+        this.virtualIo = virtual != null;
+        this.io = new CountingExecutor(virtual != null ? virtual : Executors.newCachedThreadPool(daemonThreads("parse-io-")));
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+
+        log.info("Parse executors: {} cpu threads (queue {}), {} io threads",
+                size, queueCapacity, virtualIo ? "virtual" : "platform");
+    }
+
+    /** CPU-bound parsing. */
+    public Executor cpu() {
+        return cpu;
+    }
+
+    /** Blocking I/O stages; tasks can be cancelled (interrupted) through their futures. */
+    public ExecutorService io() {
+        return io;
+    }
+
+    /** Whether the cpu executor has shut down; tasks still queued then are never run. */
+    public boolean isTerminated() {
+        return cpu.isTerminated();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> cpuStats = new LinkedHashMap<>();
+        cpuStats.put("threads", cpu.getPoolSize());
+        cpuStats.put("active", cpu.getActiveCount());
+        cpuStats.put("queued", cpu.getQueue().size());
+        cpuStats.put("queueRemaining", cpu.getQueue().remainingCapacity());
+        cpuStats.put("completed", cpu.getCompletedTaskCount());
+        cpuStats.put("ranOnCaller", callerRuns.sum());
+
+        Map<String, Object> ioStats = new LinkedHashMap<>();
+        ioStats.put("virtualThreads", virtualIo);
+        ioStats.put("active", io.active.get());
+        ioStats.put("completed", io.completed.sum());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cpu", cpuStats);
+        stats.put("io", ioStats);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cpu.shutdown();
+        io.shutdown();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeoutSeconds);
+            boolean drained = cpu.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)
+                    && io.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!drained) {
+                log.warn("Parse executors did not drain within {}s; interrupting {} cpu and {} io tasks",
+                        shutdownTimeoutSeconds, cpu.getActiveCount(), io.active.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cpu.shutdownNow();
+            io.shutdownNow();
+        }
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21 on; looked up so 17 still runs
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads are not available on Java {}; io stages use platform threads",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+
+    /** Delegating executor that counts running and finished tasks. */
+    private static final class CountingExecutor extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+
+        CountingExecutor(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.cache.SegmentedLruCache;
+import com.metaverse.msme.gazetteer.GazetteerReloadedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of address resolutions, shared by the REST parse,
+ * the Excel export and the bulk village update.
+ * <p>
+ * Entries are keyed by gazetteer version, routed district and the address's
+ * meaningful-token signature, so spellings that differ only in case,
+ * punctuation, house numbers or stop words share one entry. The version in
+ * the key keeps a parse that straddles a reload from serving stale results;
+ * the reload event additionally clears the cache to release the memory.
+ */
+@Component
+public class ParseResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ParseResultCache.class);
+
+    private static final char SEPARATOR = '\u0001';
+
+    // null when disabled with address.parse-cache.max-entries=0
+    private final SegmentedLruCache<String, Entry> cache;
+
+    public ParseResultCache(@Value("${address.parse-cache.max-entries:100000}") int maxEntries) {
+        this.cache = maxEntries > 0
+                ? new SegmentedLruCache<>(maxEntries, Runtime.getRuntime().availableProcessors() * 4)
+                : null;
+    }
+
+    Entry get(String gazetteerVersion, String district, List<String> tokens, Supplier<Entry> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        return cache.get(key(gazetteerVersion, district, tokens), k -> loader.get());
+    }
+
+    @EventListener
+    public void onGazetteerReloaded(GazetteerReloadedEvent event) {
+        if (cache == null) return;
+        long dropped = cache.size();
+        cache.invalidateAll();
+        log.info("Parse cache cleared after gazetteer reload ({} entries dropped)", dropped);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", cache != null);
+        if (cache != null) {
+            long hits = cache.hitCount();
+            long misses = cache.missCount();
+            stats.put("size", cache.size());
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("evictions", cache.evictionCount());
+            stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        }
+        return stats;
+    }
+
+    /** Cache key; also the signature {@link AddressParseService#parseAll} groups addresses by. */
+    static String key(String gazetteerVersion, String district, List<String> tokens) {
+        StringBuilder sb = new StringBuilder(64 + tokens.size() * 10);
+        sb.append(gazetteerVersion).append(SEPARATOR).append(district).append(SEPARATOR);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(tokens.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A cached resolution. The mandal display name depends on qualifier words
+     * such as "(new)" in the raw address, which the token signature drops, so
+     * when {@code dbMandal} is set the display name is resolved per call.
+     */
+    static final class Entry {
+
+        private final AddressParseResult result;
+        private final String dbMandal;
+
+        Entry(AddressParseResult result, String dbMandal) {
+            this.result = result;
+            this.dbMandal = dbMandal;
+        }
+
+        AddressParseResult getResult() {
+            return result;
+        }
+
+        String getDbMandal() {
+            return dbMandal;
+        }
+    }
+}
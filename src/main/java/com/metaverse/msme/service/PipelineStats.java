@@ -0,0 +1,71 @@
+package com.metaverse.msme.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stage counters of a read → parse → write pipeline run.
+ * <p>
+ * For each stage: rows handled, time spent working (busy) and time spent
+ * blocked on a neighbouring stage. Rows per busy second is what the stage
+ * could sustain alone; the stage with the lowest figure is the bottleneck.
+ */
+public class PipelineStats {
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong endNanos = new AtomicLong();
+
+    final Stage read = new Stage();
+    final Stage parse = new Stage();
+    final Stage write = new Stage();
+
+    // distinct address signatures the parse stage resolved, against parse.rows
+    final LongAdder signatures = new LongAdder();
+
+    void finish() {
+        endNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    public Map<String, Object> toMap() {
+        long end = endNanos.get() != 0 ? endNanos.get() : System.nanoTime();
+        double wallSeconds = (end - startNanos) / 1e9;
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("running", endNanos.get() == 0);
+        map.put("wallSeconds", wallSeconds);
+        map.put("rowsPerSecond", wallSeconds > 0 ? write.rows.sum() / wallSeconds : 0.0);
+        map.put("read", read.toMap());
+        Map<String, Object> parseMap = parse.toMap();
+        parseMap.put("signatures", signatures.sum());
+        map.put("parse", parseMap);
+        map.put("write", write.toMap());
+        return map;
+    }
+
+    static final class Stage {
+
+        final LongAdder rows = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        final LongAdder blockedNanos = new LongAdder();
+
+        void done(int rowCount, long busy) {
+            rows.add(rowCount);
+            batches.increment();
+            busyNanos.add(busy);
+        }
+
+        Map<String, Object> toMap() {
+            double busySeconds = busyNanos.sum() / 1e9;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("rows", rows.sum());
+            map.put("batches", batches.sum());
+            map.put("busySeconds", busySeconds);
+            map.put("blockedSeconds", blockedNanos.sum() / 1e9);
+            map.put("rowsPerBusySecond", busySeconds > 0 ? rows.sum() / busySeconds : 0.0);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.extractor.MandalDetectionResult;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read → parse → write pipeline behind {@link VillageResolutionJob}.
+ * <p>
+ * A reader task on the shared io executor walks {@code msme_unit_details} in
+ * slno order on a single server-side cursor (PostgreSQL only streams with
+ * autocommit off and a fetch size set) and cuts it into batches, each parsed
+ * as one task on the shared cpu executor. The parse futures go onto a bounded
+ * queue in read order; the calling thread takes them off in that order and
+ * commits each once it completes, so every commit covers a contiguous slno
+ * prefix and the job's checkpoint stays exact. A full queue blocks the
+ * reader, which bounds memory (and parsing in flight) to a few batches.
+ * <p>
+ * Only stale rows are read: rows whose address hash or resolution version
+ * differs from what the last resolution stamped on them, or that have no
+ * stored result yet. So are ties (several mandals or villages matched) of
+ * units with coordinates that were resolved under other centroids than the
+ * current ones, which may now break them. The hash is computed by the
+ * database, so unchanged rows never leave it.
+ */
+final class ResolutionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ResolutionPipeline.class);
+
+    private static final String STALE =
+            "u.slno > ? AND u.slno <= ? AND (u.address_hash IS DISTINCT FROM " + UnitResolutionStore.ADDRESS_HASH +
+            " OR u.resolved_version IS DISTINCT FROM ?" +
+            " OR NOT EXISTS (SELECT 1 FROM unit_address_resolution r WHERE r.slno = u.slno)" +
+            " OR (" + VillageCentroids.HAS_LOCATION + " AND EXISTS (SELECT 1 FROM unit_address_resolution r" +
+            " WHERE r.slno = u.slno AND (r.mandal_status = 'MULTIPLE_MANDALS' OR r.village_status = 'MULTIPLE_VILLAGES')" +
+            " AND r.centroid_version IS DISTINCT FROM ?)))";
+
+    private static final String SCAN_SQL =
+            "SELECT u.slno, u.unitaddress, u.district, " + UnitResolutionStore.ADDRESS_HASH + ", u.lattitude, u.longitute" +
+            " FROM msme_unit_details u WHERE " + STALE + " ORDER BY u.slno";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM msme_unit_details u WHERE " + STALE;
+
+    private static final long POLL_MILLIS = 200;
+
+    /** Outcome for one row. */
+    static final class ResolvedUnit {
+        final int slno;
+        final AddressParseResult result;
+        final String addressHash;
+
+        ResolvedUnit(int slno, AddressParseResult result, String addressHash) {
+            this.slno = slno;
+            this.result = result;
+            this.addressHash = addressHash;
+        }
+
+        /** Detected village, or null when none was. */
+        String village() {
+            return result.getVillage();
+        }
+    }
+
+    /** A committed unit of work, handed to the writer in read order. */
+    static final class ParsedBatch {
+        final long seq;
+        final int lastSlno;
+        final List<ResolvedUnit> units;
+        final int villagesFound;
+        final String gazetteerVersion;
+
+        ParsedBatch(long seq, int lastSlno, List<ResolvedUnit> units, int villagesFound, String gazetteerVersion) {
+            this.seq = seq;
+            this.lastSlno = lastSlno;
+            this.units = units;
+            this.villagesFound = villagesFound;
+            this.gazetteerVersion = gazetteerVersion;
+        }
+
+        int rows() {
+            return units.size();
+        }
+    }
+
+    @FunctionalInterface
+    interface Committer {
+        void commit(ParsedBatch batch);
+    }
+
+    private static final class ScannedUnit {
+        final int slno;
+        final String unitAddress;
+        final String district;
+        final String addressHash;
+        // null when the row has no usable coordinates
+        final VillageCentroids.Location location;
+
+        ScannedUnit(int slno, String unitAddress, String district, String addressHash,
+                    VillageCentroids.Location location) {
+            this.slno = slno;
+            this.unitAddress = unitAddress;
+            this.district = district;
+            this.addressHash = addressHash;
+            this.location = location;
+        }
+    }
+
+    // end-of-stream marker
+    private static final CompletableFuture<ParsedBatch> NO_MORE_BATCHES =
+            CompletableFuture.completedFuture(new ParsedBatch(-1, 0, List.of(), 0, null));
+
+    private final DataSource dataSource;
+    private final AddressParseService addressParseService;
+    private final GazetteerProvider gazetteerProvider;
+    private final ParseExecutors executors;
+    private final int batchSize;
+    private final int fetchSize;
+    private final int inFlightBatches;
+
+    /**
+     * @param parallelBatches batches parsed at once, at most (the cpu executor
+     *                        caps actual parallelism)
+     * @param queueCapacity   parsed batches buffered ahead of the writer
+     */
+    ResolutionPipeline(DataSource dataSource,
+                       AddressParseService addressParseService,
+                       GazetteerProvider gazetteerProvider,
+                       ParseExecutors executors,
+                       int batchSize, int fetchSize, int parallelBatches, int queueCapacity) {
+        this.dataSource = dataSource;
+        this.addressParseService = addressParseService;
+        this.gazetteerProvider = gazetteerProvider;
+        this.executors = executors;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+        this.inFlightBatches = parallelBatches + queueCapacity;
+    }
+
+    /** Number of rows {@link #run} would read, for progress reporting. */
+    long countStale(int afterSlno, int untilSlno, String resolutionVersion, String centroidVersion) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(COUNT_SQL)) {
+            ps.setInt(1, afterSlno);
+            ps.setInt(2, untilSlno);
+            ps.setString(3, resolutionVersion);
+            ps.setString(4, centroidVersion);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Counting stale msme_unit_details rows failed", e);
+        }
+    }
+
+    /**
+     * Resolves every stale row with {@code afterSlno < slno <= untilSlno},
+     * calling {@code committer} on the current thread once per batch in slno
+     * order. A row is stale when its address changed since it was last
+     * resolved or it was resolved under a version other than
+     * {@code resolutionVersion}, or when it is a located tie resolved under
+     * centroids other than {@code centroidVersion}. Stops reading once {@code progress} is
+     * cancelled; batches already read are still committed. {@code stats}
+     * accumulates over calls; finishing it is up to the caller.
+     */
+    void run(int afterSlno, int untilSlno, String resolutionVersion, String centroidVersion,
+             JobProgress progress, PipelineStats stats, Committer committer) {
+
+        BlockingQueue<CompletableFuture<ParsedBatch>> inFlight = new ArrayBlockingQueue<>(inFlightBatches);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+
+        Future<?> reader = executors.io().submit(() -> guard(failure, abandoned,
+                () -> read(afterSlno, untilSlno, resolutionVersion, centroidVersion, progress, stats,
+                        inFlight, failure, abandoned)));
+        try {
+            write(stats, inFlight, failure, reader, committer);
+        } finally {
+            // batches the writer will not take any more must not hold up the shared cpu threads
+            abandoned.set(true);
+            // stops a reader still blocked on the cursor or the queue
+            reader.cancel(true);
+        }
+    }
+
+    // ------------------ STAGES ------------------
+
+    private void read(int afterSlno, int untilSlno, String resolutionVersion, String centroidVersion,
+                      JobProgress progress, PipelineStats stats,
+                      BlockingQueue<CompletableFuture<ParsedBatch>> inFlight,
+                      AtomicReference<Throwable> failure,
+                      AtomicBoolean abandoned) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                ps.setInt(1, afterSlno);
+                ps.setInt(2, untilSlno);
+                ps.setString(3, resolutionVersion);
+                ps.setString(4, centroidVersion);
+
+                long seq = 0;
+                long busyStart = System.nanoTime();
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<ScannedUnit> rows = new ArrayList<>(batchSize);
+                    while (failure.get() == null && !progress.isCancelled() && rs.next()) {
+                        rows.add(new ScannedUnit(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                VillageCentroids.Location.of(rs.getString(5), rs.getString(6))));
+                        if (rows.size() == batchSize) {
+                            stats.read.done(rows.size(), System.nanoTime() - busyStart);
+                            put(inFlight, submitParse(seq++, rows, stats, abandoned), stats.read);
+                            rows = new ArrayList<>(batchSize);
+                            busyStart = System.nanoTime();
+                        }
+                    }
+                    if (!rows.isEmpty() && failure.get() == null && !progress.isCancelled()) {
+                        stats.read.done(rows.size(), System.nanoTime() - busyStart);
+                        put(inFlight, submitParse(seq, rows, stats, abandoned), stats.read);
+                    }
+                } finally {
+                    connection.rollback();
+                }
+            }
+        }
+        // on failure the writer aborts the run instead; no marker needed
+        put(inFlight, NO_MORE_BATCHES, stats.read);
+    }
+
+    private CompletableFuture<ParsedBatch> submitParse(long seq, List<ScannedUnit> rows, PipelineStats stats,
+                                                       AtomicBoolean abandoned) {
+        long submittedAt = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            if (abandoned.get()) {
+                // the run ended while this batch was queued
+                return null;
+            }
+            // time spent waiting for a cpu thread
+            stats.parse.blockedNanos.add(System.nanoTime() - submittedAt);
+            return parse(seq, rows, stats);
+        }, executors.cpu());
+    }
+
+    private ParsedBatch parse(long seq, List<ScannedUnit> rows, PipelineStats stats) {
+
+        long busyStart = System.nanoTime();
+        String gazetteerVersion = gazetteerProvider.get().getVersion();
+
+        // units sharing an address signature are resolved once, see AddressParseService.parseAll
+        List<ScannedUnit> withAddress = new ArrayList<>(rows.size());
+        for (ScannedUnit unit : rows) {
+            if (unit.unitAddress != null) withAddress.add(unit);
+        }
+        AddressParseService.GroupedParse parsed = addressParseService.parseAll(
+                withAddress, u -> u.district, u -> u.unitAddress, u -> u.location, null);
+        stats.signatures.add(parsed.getSignatures());
+
+        List<ResolvedUnit> units = new ArrayList<>(rows.size());
+        Iterator<AddressParseResult> results = parsed.getResults().iterator();
+        int villagesFound = 0;
+        for (ScannedUnit unit : rows) {
+            AddressParseResult result = unit.unitAddress != null
+                    ? results.next()
+                    : AddressParseResult.fromMandalResult(MandalDetectionResult.notFound());
+            if (result.getVillage() != null) villagesFound++;
+
+            // every scanned row is stamped, found or not, so it is not read again
+            units.add(new ResolvedUnit(unit.slno, result, unit.addressHash));
+        }
+        int lastSlno = rows.get(rows.size() - 1).slno;
+        stats.parse.done(rows.size(), System.nanoTime() - busyStart);
+
+        return new ParsedBatch(seq, lastSlno, units, villagesFound, gazetteerVersion);
+    }
+
+    private void write(PipelineStats stats,
+                       BlockingQueue<CompletableFuture<ParsedBatch>> inFlight,
+                       AtomicReference<Throwable> failure,
+                       Future<?> reader,
+                       Committer committer) {
+
+        long committed = 0;
+
+        while (true) {
+            rethrow(failure);
+
+            CompletableFuture<ParsedBatch> next;
+            long waitStart = System.nanoTime();
+            try {
+                next = inFlight.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for parsed batches", e);
+            }
+            if (next == null) {
+                stats.write.blockedNanos.add(System.nanoTime() - waitStart);
+                if (reader.isDone() && inFlight.isEmpty()) {
+                    // the reader ended without its end marker: failed, or stopped from outside
+                    rethrow(failure);
+                    throw new IllegalStateException("Reader stopped before the end of the scan");
+                }
+                continue;
+            }
+            if (next == NO_MORE_BATCHES) {
+                break;
+            }
+
+            // queued in read order, so waiting on the head keeps commits in slno order
+            ParsedBatch batch = await(next, failure);
+            stats.write.blockedNanos.add(System.nanoTime() - waitStart);
+
+            long busyStart = System.nanoTime();
+            committer.commit(batch);
+            stats.write.done(batch.rows(), System.nanoTime() - busyStart);
+
+            if (++committed % 10 == 0) {
+                log.info("Resolution pipeline: {}", stats.toMap());
+            }
+        }
+        rethrow(failure);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    private static void guard(AtomicReference<Throwable> failure, AtomicBoolean abandoned, StageBody stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // the writer interrupts the reader once it is done with it; any other
+            // interrupt (the executor shutting down) ends the run
+            if (!abandoned.get()) {
+                failure.compareAndSet(null, e);
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item, PipelineStats.Stage stage) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        queue.put(item);
+        stage.blockedNanos.add(System.nanoTime() - waitStart);
+    }
+
+    // bounded waits: a batch dropped by a shut down executor never completes
+    private ParsedBatch await(CompletableFuture<ParsedBatch> future, AtomicReference<Throwable> failure) {
+        while (true) {
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                rethrow(failure);
+                if (executors.isTerminated() && !future.isDone()) {
+                    throw new IllegalStateException("Parse executor shut down before the batch was parsed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a parsed batch", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException re) throw re;
+                if (cause instanceof Error err) throw err;
+                throw new IllegalStateException("Parsing a batch failed", cause);
+            }
+        }
+    }
+
+    private static void rethrow(AtomicReference<Throwable> failure) {
+        Throwable t = failure.get();
+        if (t == null) return;
+        if (t instanceof RuntimeException re) throw re;
+        if (t instanceof Error err) throw err;
+        if (t instanceof SQLException) throw new IllegalStateException("Reading msme_unit_details failed", t);
+        throw new IllegalStateException("Resolution pipeline failed", t);
+    }
+}
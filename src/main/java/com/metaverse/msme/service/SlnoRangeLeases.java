@@ -0,0 +1,229 @@
+package com.metaverse.msme.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the {@code msme_unit_details} slno keyspace into ranges in
+ * {@code bulk_job_range} and leases them out, so every instance running a bulk
+ * job works on its own ranges.
+ * <p>
+ * Ranges are claimed with {@code FOR UPDATE SKIP LOCKED}: concurrent claims
+ * never block on each other or return the same range. A lease expires unless
+ * renewed, which every committed batch does, so the ranges of a crashed
+ * instance go back to the pool. Renewing is fenced on the owner: once a lease
+ * has expired and been taken over, the old owner's next batch fails with
+ * {@link LeaseLostException} and rolls back instead of racing the new owner.
+ * <p>
+ * Each range also carries its own progress ({@code last_slno}), so a released
+ * or taken over range resumes where it stopped.
+ */
+@Component
+public class SlnoRangeLeases {
+
+    public static final String PENDING = "PENDING";
+    public static final String LEASED = "LEASED";
+    public static final String DONE = "DONE";
+
+    private static final String CLAIM_SQL =
+            "UPDATE bulk_job_range r SET status = 'LEASED', owner = ?, " +
+            "lease_expires_at = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE (r.job_name, r.range_start) IN (" +
+            "SELECT job_name, range_start FROM bulk_job_range " +
+            "WHERE job_name = ? AND (status = 'PENDING' OR (status = 'LEASED' AND lease_expires_at < now())) " +
+            "ORDER BY range_start LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING r.range_start, r.range_end, r.last_slno";
+
+    private static final String ADVANCE_SQL =
+            "UPDATE bulk_job_range SET last_slno = ?, rows_scanned = rows_scanned + ?, " +
+            "rows_updated = rows_updated + ?, lease_expires_at = now() + make_interval(secs => ?), " +
+            "updated_at = now() " +
+            "WHERE job_name = ? AND range_start = ? AND owner = ? AND status = 'LEASED'";
+
+    private static final String FINISH_SQL =
+            "UPDATE bulk_job_range SET status = ?, owner = NULL, lease_expires_at = NULL, updated_at = now() " +
+            "WHERE job_name = ? AND range_start = ? AND owner = ? AND status = 'LEASED'";
+
+    /** A claimed range: {@code rangeStart < slno <= rangeEnd}, done up to {@code lastSlno}. */
+    static final class Lease {
+        final String jobName;
+        final String owner;
+        final int rangeStart;
+        final int rangeEnd;
+        final int lastSlno;
+
+        Lease(String jobName, String owner, int rangeStart, int rangeEnd, int lastSlno) {
+            this.jobName = jobName;
+            this.owner = owner;
+            this.rangeStart = rangeStart;
+            this.rangeEnd = rangeEnd;
+            this.lastSlno = lastSlno;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + rangeStart + ", " + (rangeEnd == Integer.MAX_VALUE ? "end" : rangeEnd) + "]";
+        }
+    }
+
+    /** The lease was taken over after it expired; the batch must not commit. */
+    static final class LeaseLostException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LeaseLostException(Lease lease) {
+            super("Lease on slno range " + lease + " of " + lease.jobName + " was lost");
+        }
+    }
+
+    /** Progress of the current set of ranges, summed over every instance. */
+    static final class Totals {
+        final int ranges;
+        final int openRanges;
+        // every slno up to here is done
+        final int lastSlno;
+        final long rowsScanned;
+        final long rowsUpdated;
+        final Instant plannedAt;
+
+        Totals(int ranges, int openRanges, int lastSlno, long rowsScanned, long rowsUpdated, Instant plannedAt) {
+            this.ranges = ranges;
+            this.openRanges = openRanges;
+            this.lastSlno = lastSlno;
+            this.rowsScanned = rowsScanned;
+            this.rowsUpdated = rowsUpdated;
+            this.plannedAt = plannedAt;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int rangeSize;
+    private final int leaseSeconds;
+
+    public SlnoRangeLeases(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${address.bulk.range-size:50000}") int rangeSize,
+                           @Value("${address.bulk.lease-seconds:300}") int leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rangeSize = rangeSize;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Makes sure {@code jobName} has ranges to work on. Open ranges are left
+     * alone, so instances started together join the same set; once every
+     * range is done (or on {@code restart}) a new set is laid over the table.
+     * The last range is open-ended and picks up units added meanwhile.
+     *
+     * @return true when a new set of ranges was created
+     */
+    boolean plan(String jobName, boolean restart) {
+        Boolean planned = transactionTemplate.execute(status -> {
+
+            // one planner at a time; released with the transaction
+            jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext(?))", Object.class,
+                    "bulk_job_range:" + jobName);
+
+            if (restart) {
+                // a restart takes ranges away from instances still working on them;
+                // their next batch fails with LeaseLostException
+                jdbcTemplate.update("DELETE FROM bulk_job_range WHERE job_name = ?", jobName);
+            }
+
+            Integer open = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM bulk_job_range WHERE job_name = ? AND status <> 'DONE'",
+                    Integer.class, jobName);
+            if (open > 0) {
+                return false;
+            }
+
+            // the previous set is finished; lay a new one
+            jdbcTemplate.update("DELETE FROM bulk_job_range WHERE job_name = ?", jobName);
+
+            Map<String, Object> bounds = jdbcTemplate.queryForList(
+                    "SELECT coalesce(min(slno), 1) AS lo, coalesce(max(slno), 0) AS hi FROM msme_unit_details").get(0);
+            int lo = ((Number) bounds.get("lo")).intValue() - 1;
+            int hi = ((Number) bounds.get("hi")).intValue();
+
+            Timestamp now = Timestamp.from(Instant.now());
+            String insert = "INSERT INTO bulk_job_range (job_name, range_start, range_end, status, last_slno, " +
+                    "created_at, updated_at) VALUES (?, ?, ?, 'PENDING', ?, ?, ?)";
+            for (long start = lo; ; start += rangeSize) {
+                boolean last = start + rangeSize >= hi;
+                int end = last ? Integer.MAX_VALUE : (int) (start + rangeSize);
+                jdbcTemplate.update(insert, jobName, (int) start, end, (int) start, now, now);
+                if (last) break;
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(planned);
+    }
+
+    /** Claims the next free or expired range, or returns null when none is left. */
+    Lease claim(String jobName, String owner) {
+        List<Lease> claimed = jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new Lease(jobName, owner, rs.getInt("range_start"), rs.getInt("range_end"),
+                        rs.getInt("last_slno")),
+                owner, leaseSeconds, jobName);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    /**
+     * Records a batch of the range and renews the lease. Must run first in
+     * the batch's transaction: it locks the range row, and throws
+     * {@link LeaseLostException} (rolling the batch back) if the lease is gone.
+     */
+    void advance(Lease lease, int lastSlno, int rowsScanned, int rowsUpdated) {
+        int updated = jdbcTemplate.update(ADVANCE_SQL, lastSlno, rowsScanned, rowsUpdated, leaseSeconds,
+                lease.jobName, lease.rangeStart, lease.owner);
+        if (updated == 0) {
+            throw new LeaseLostException(lease);
+        }
+    }
+
+    /** Marks the range done. */
+    void complete(Lease lease) {
+        if (jdbcTemplate.update(FINISH_SQL, DONE, lease.jobName, lease.rangeStart, lease.owner) == 0) {
+            throw new LeaseLostException(lease);
+        }
+    }
+
+    /** Hands an unfinished range back for the next claim, keeping its progress. */
+    void release(Lease lease) {
+        jdbcTemplate.update(FINISH_SQL, PENDING, lease.jobName, lease.rangeStart, lease.owner);
+    }
+
+    Totals totals(String jobName) {
+        Map<String, Object> row = jdbcTemplate.queryForList(
+                "SELECT count(*) AS ranges, count(*) FILTER (WHERE status <> 'DONE') AS open_ranges, " +
+                "coalesce(min(last_slno) FILTER (WHERE status <> 'DONE'), max(last_slno), 0) AS last_slno, " +
+                "coalesce(sum(rows_scanned), 0) AS rows_scanned, coalesce(sum(rows_updated), 0) AS rows_updated, " +
+                "min(created_at) AS planned_at " +
+                "FROM bulk_job_range WHERE job_name = ?", jobName).get(0);
+
+        Timestamp plannedAt = (Timestamp) row.get("planned_at");
+        return new Totals(
+                ((Number) row.get("ranges")).intValue(),
+                ((Number) row.get("open_ranges")).intValue(),
+                ((Number) row.get("last_slno")).intValue(),
+                ((Number) row.get("rows_scanned")).longValue(),
+                ((Number) row.get("rows_updated")).longValue(),
+                plannedAt != null ? plannedAt.toInstant() : Instant.now());
+    }
+
+    /** Every range of {@code jobName} with its status, owner and progress. */
+    public List<Map<String, Object>> ranges(String jobName) {
+        return jdbcTemplate.queryForList(
+                "SELECT range_start, range_end, status, owner, lease_expires_at, last_slno, rows_scanned, " +
+                "rows_updated, updated_at FROM bulk_job_range WHERE job_name = ? ORDER BY range_start", jobName);
+    }
+}
@@ -0,0 +1,170 @@
+package com.metaverse.msme.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Unit counts per district, mandal, village, category and address status
+ * (the Excel export's ADDRESS STATUS: the village status, or the mandal
+ * status when no village was looked for), kept in {@code unit_resolution_stats}.
+ * <p>
+ * The counters cover every unit with a stored result and are maintained by
+ * {@link UnitResolutionStore}: each batch it writes moves the counters of the
+ * results it replaces down and those of the new results up, in the same
+ * transaction, so a unit whose result did not change moves nothing. Reading
+ * them costs the number of groups, not of units. Unknown values are kept as
+ * {@code ''} in the table (key columns cannot be null) and reported as null.
+ * <p>
+ * {@link #rebuild} recounts everything from {@code unit_address_resolution};
+ * the bulk job does that when it finds the table empty.
+ */
+@Component
+public class UnitResolutionStats {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitResolutionStats.class);
+
+    /** Group-by dimensions, as request names -> columns. */
+    public static final Map<String, String> DIMENSIONS = Map.of(
+            "district", "district",
+            "mandal", "mandal",
+            "village", "village",
+            "category", "category",
+            "status", "address_status");
+
+    private static final List<String> DIMENSION_ORDER = List.of("district", "mandal", "village", "category", "status");
+
+    static final String ON_CONFLICT_ADD =
+            "ON CONFLICT (district, mandal, village, category, address_status) " +
+            "DO UPDATE SET unit_count = unit_resolution_stats.unit_count + EXCLUDED.unit_count";
+
+    /** Counter keys in the order {@link UnitResolutionStore} takes their row locks. */
+    static final Comparator<List<String>> KEY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.size(); i++) {
+            int c = a.get(i).compareTo(b.get(i));
+            if (c != 0) return c;
+        }
+        return 0;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public UnitResolutionStats(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Unit counts grouped by {@code groupBy} (any of {@link #DIMENSIONS}),
+     * restricted to the given {@code filters} (dimension -> value; null
+     * matches an unknown value). Groups with no units are left out.
+     *
+     * @throws IllegalArgumentException on an unknown dimension
+     */
+    public List<Map<String, Object>> summary(List<String> groupBy, Map<String, String> filters) {
+
+        List<String> columns = new ArrayList<>();
+        for (String dimension : groupBy) {
+            columns.add(column(dimension));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < groupBy.size(); i++) {
+            sql.append("nullif(").append(columns.get(i)).append(", '') AS ").append(groupBy.get(i)).append(", ");
+        }
+        sql.append("sum(unit_count) AS units FROM unit_resolution_stats");
+
+        List<Object> args = new ArrayList<>();
+        String where = " WHERE ";
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            sql.append(where).append(column(filter.getKey())).append(" = ?");
+            args.add(filter.getValue() == null ? "" : filter.getValue());
+            where = " AND ";
+        }
+        if (!columns.isEmpty()) {
+            String list = String.join(", ", columns);
+            sql.append(" GROUP BY ").append(list).append(" HAVING sum(unit_count) > 0 ORDER BY ").append(list);
+        }
+        return jdbcTemplate.queryForList(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Recounts every counter from {@code unit_address_resolution}, first
+     * recording each unit's current category with its result. Holds an
+     * exclusive lock on the counters meanwhile: batches being written finish
+     * first, and batches starting later wait, then see the recount.
+     */
+    public long rebuild() {
+        return rebuild(false);
+    }
+
+    /** {@link #rebuild()} when there are no counters yet, e.g. on the first run after an upgrade. */
+    long rebuildIfEmpty() {
+        return rebuild(true);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private long rebuild(boolean onlyIfEmpty) {
+        Long units = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE unit_resolution_stats IN EXCLUSIVE MODE");
+            if (onlyIfEmpty && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM unit_resolution_stats)", Boolean.class))) {
+                return null;
+            }
+
+            jdbcTemplate.update("UPDATE unit_address_resolution r SET category = u.category " +
+                    "FROM msme_unit_details u WHERE u.slno = r.slno AND r.category IS DISTINCT FROM u.category");
+            jdbcTemplate.update("DELETE FROM unit_resolution_stats");
+            jdbcTemplate.update("INSERT INTO unit_resolution_stats " +
+                    "(district, mandal, village, category, address_status, unit_count) " +
+                    "SELECT " + key("r") + ", count(*) FROM unit_address_resolution r " +
+                    "GROUP BY 1, 2, 3, 4, 5");
+            return jdbcTemplate.queryForObject(
+                    "SELECT coalesce(sum(unit_count), 0) FROM unit_resolution_stats", Long.class);
+        });
+        if (units != null) {
+            log.info("Unit resolution stats rebuilt: {} units counted", units);
+        }
+        return units == null ? -1 : units;
+    }
+
+    private static String column(String dimension) {
+        String column = DIMENSIONS.get(dimension);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown dimension '" + dimension + "'; known: " + DIMENSION_ORDER);
+        }
+        return column;
+    }
+
+    /** Counter key columns of the {@code unit_address_resolution} row aliased {@code alias}. */
+    static String key(String alias) {
+        return "coalesce(" + alias + ".district, '') AS district, " +
+                "coalesce(" + alias + ".mandal, '') AS mandal, " +
+                "coalesce(" + alias + ".village, '') AS village, " +
+                "coalesce(" + alias + ".category, '') AS category, " +
+                "coalesce(" + alias + ".village_status, " + alias + ".mandal_status, '') AS address_status";
+    }
+
+    /** The key selected by {@link #key(String)}. */
+    static List<String> key(ResultSet rs) throws SQLException {
+        return List.of(rs.getString("district"), rs.getString("mandal"), rs.getString("village"),
+                rs.getString("category"), rs.getString("address_status"));
+    }
+
+    static List<String> key(String district, String mandal, String village, String category, String addressStatus) {
+        return List.of(blank(district), blank(mandal), blank(village), blank(category), blank(addressStatus));
+    }
+
+    private static String blank(String value) {
+        return value == null ? "" : value;
+    }
+}
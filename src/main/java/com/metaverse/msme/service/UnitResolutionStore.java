@@ -0,0 +1,365 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.extractor.MandalDetectionStatus;
+import com.metaverse.msme.extractor.VillageDetectionStatus;
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Full parse outcome of each unit, kept in {@code unit_address_resolution}.
+ * <p>
+ * Written by {@link VillageResolutionJob} in the same transaction that stamps
+ * {@code msme_unit_details.address_hash} / {@code resolved_version}, so a
+ * stored result is current exactly when its unit's address still hashes to
+ * the stamp and its version is the one in effect. Readers such as the Excel
+ * export use current results and parse only the rest.
+ * <p>
+ * Each batch also moves the counters in {@code unit_resolution_stats} (see
+ * {@link UnitResolutionStats}) by the difference between the units' previous
+ * and new results, so only the counters the batch touches change.
+ * <p>
+ * Batches are written in one of two ways ({@code address.bulk.write-mode}):
+ * <ul>
+ *   <li>{@code copy} (default): the batch is streamed with {@code COPY} into a
+ *   temporary staging table and applied with one set-based {@code UPDATE ... FROM}
+ *   and one {@code INSERT ... SELECT}; two statements per batch instead of two
+ *   per row.</li>
+ *   <li>{@code batch}: a JDBC batch of per-row statements. Slower, but works on
+ *   any driver.</li>
+ * </ul>
+ */
+@Component
+public class UnitResolutionStore {
+
+    public enum WriteMode { COPY, BATCH }
+
+    /**
+     * Hash of what a unit's parse depends on, over {@code msme_unit_details u}.
+     * District routes the parse, so it is part of it; the coordinates break
+     * ties between matched villages (see {@link VillageCentroids}), so they are too.
+     */
+    static final String ADDRESS_HASH =
+            "md5(coalesce(u.district, '') || chr(10) || coalesce(u.unitaddress, '') || chr(10) || " +
+            "coalesce(u.lattitude, '') || chr(10) || coalesce(u.longitute, ''))";
+
+    private static final String RESULT_COLUMNS =
+            "slno, district, mandal, mandal_status, multiple_mandals, village, village_status, multiple_villages";
+
+    private static final String ON_CONFLICT_REPLACE =
+            " ON CONFLICT (slno) DO UPDATE SET district = EXCLUDED.district, mandal = EXCLUDED.mandal, " +
+            "mandal_status = EXCLUDED.mandal_status, multiple_mandals = EXCLUDED.multiple_mandals, " +
+            "village = EXCLUDED.village, village_status = EXCLUDED.village_status, " +
+            "multiple_villages = EXCLUDED.multiple_villages, category = EXCLUDED.category, " +
+            "resolved_version = EXCLUDED.resolved_version, centroid_version = EXCLUDED.centroid_version, " +
+            "resolved_at = EXCLUDED.resolved_at";
+
+    // the unit's category, recorded with its result so the counter it was added to is known later
+    private static final String UNIT_CATEGORY = "(SELECT u.category FROM msme_unit_details u WHERE u.slno = ";
+
+    // taken before a batch reads the results it replaces, see UnitResolutionStats.rebuild
+    private static final String LOCK_STATS_SQL = "LOCK TABLE unit_resolution_stats IN ROW EXCLUSIVE MODE";
+
+    // one statement per distinct key; in key order, so concurrent batches lock counters in the same order
+    private static final String ADD_COUNT_SQL =
+            "INSERT INTO unit_resolution_stats (district, mandal, village, category, address_status, unit_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " + UnitResolutionStats.ON_CONFLICT_ADD;
+
+    // ---- batch mode ----
+
+    private static final String STAMP_UNIT_SQL =
+            "UPDATE msme_unit_details " +
+            "SET villageId = coalesce(?, villageId), address_hash = ?, resolved_version = ? " +
+            "WHERE slno = ?";
+
+    private static final String UPSERT_RESULT_SQL =
+            "INSERT INTO unit_address_resolution (" + RESULT_COLUMNS +
+            ", category, resolved_version, centroid_version, resolved_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, " + UNIT_CATEGORY + "?), ?, ?, now())" + ON_CONFLICT_REPLACE;
+
+    // previous result (if any) and current category of each unit of the batch
+    private static final String PREVIOUS_KEYS_SQL =
+            "SELECT u.slno, u.category AS new_category, r.slno IS NOT NULL AS counted, " +
+            UnitResolutionStats.key("r") + " " +
+            "FROM msme_unit_details u LEFT JOIN unit_address_resolution r ON r.slno = u.slno " +
+            "WHERE u.slno = ANY (?)";
+
+    // ---- copy mode ----
+
+    // session-local, never WAL-logged; emptied by every commit
+    private static final String CREATE_STAGE_SQL =
+            "CREATE TEMP TABLE IF NOT EXISTS unit_resolution_stage (" +
+            "slno INTEGER, address_hash VARCHAR(32), district TEXT, mandal TEXT, mandal_status TEXT, " +
+            "multiple_mandals TEXT[], village TEXT, village_status TEXT, multiple_villages TEXT[]" +
+            ") ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGE_SQL =
+            "COPY unit_resolution_stage (address_hash, " + RESULT_COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String APPLY_STAMP_SQL =
+            "UPDATE msme_unit_details u " +
+            "SET villageId = coalesce(s.village, u.villageId), address_hash = s.address_hash, resolved_version = ? " +
+            "FROM unit_resolution_stage s WHERE u.slno = s.slno";
+
+    private static final String APPLY_RESULT_SQL =
+            "INSERT INTO unit_address_resolution (" + RESULT_COLUMNS +
+            ", category, resolved_version, centroid_version, resolved_at) " +
+            "SELECT " + RESULT_COLUMNS + ", " + UNIT_CATEGORY + "unit_resolution_stage.slno), ?, ?, now() " +
+            "FROM unit_resolution_stage" + ON_CONFLICT_REPLACE;
+
+    // net counter moves of the staged batch: -1 on each replaced result's key, +1 on each new one
+    private static final String APPLY_COUNTS_SQL =
+            "INSERT INTO unit_resolution_stats (district, mandal, village, category, address_status, unit_count) " +
+            "SELECT district, mandal, village, category, address_status, sum(delta) FROM (" +
+            "SELECT " + UnitResolutionStats.key("r") + ", -1 AS delta " +
+            "FROM unit_address_resolution r JOIN unit_resolution_stage s ON s.slno = r.slno " +
+            "UNION ALL " +
+            "SELECT coalesce(s.district, ''), coalesce(s.mandal, ''), coalesce(s.village, ''), " +
+            "coalesce(u.category, ''), coalesce(s.village_status, s.mandal_status, ''), 1 " +
+            "FROM unit_resolution_stage s JOIN msme_unit_details u ON u.slno = s.slno" +
+            ") d GROUP BY district, mandal, village, category, address_status HAVING sum(delta) <> 0 " +
+            "ORDER BY district, mandal, village, category, address_status " + UnitResolutionStats.ON_CONFLICT_ADD;
+
+    private static final String FIND_CURRENT_SQL =
+            "SELECT r.* FROM unit_address_resolution r JOIN msme_unit_details u ON u.slno = r.slno " +
+            "WHERE r.slno > ? AND r.slno <= ? AND r.resolved_version = ? AND u.address_hash = " + ADDRESS_HASH;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GazetteerProvider gazetteerProvider;
+    private final WriteMode writeMode;
+
+    public UnitResolutionStore(JdbcTemplate jdbcTemplate,
+                               GazetteerProvider gazetteerProvider,
+                               @Value("${address.bulk.write-mode:copy}") String writeMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gazetteerProvider = gazetteerProvider;
+        this.writeMode = WriteMode.valueOf(writeMode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /** Version stamped on results parsed against the given gazetteer snapshot. */
+    public static String resolutionVersion(String gazetteerVersion) {
+        return AddressParseService.PARSER_VERSION + ":" + gazetteerVersion;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * Writes one batch: stamps each unit (and its village, when one was
+     * detected; an undetected one keeps its old villageId) and inserts or
+     * replaces its stored result. Joins the caller's transaction.
+     *
+     * @param centroidVersion {@link VillageCentroids#generation()} the batch was parsed with
+     */
+    void write(List<ResolutionPipeline.ResolvedUnit> units, String resolutionVersion, String centroidVersion) {
+
+        if (units.isEmpty()) return;
+
+        if (writeMode == WriteMode.COPY) {
+            writeByCopy(units, resolutionVersion, centroidVersion);
+        } else {
+            writeByBatch(units, resolutionVersion, centroidVersion);
+        }
+    }
+
+    /**
+     * Current stored results for units with {@code afterSlno < slno <= lastSlno},
+     * keyed by slno. Units whose address changed since, or that were resolved
+     * under another parser or gazetteer version, are left out.
+     */
+    public Map<Integer, AddressParseResult> findCurrent(int afterSlno, int lastSlno) {
+
+        String gazetteerVersion = gazetteerProvider.get().getVersion();
+        Map<Integer, AddressParseResult> results = new HashMap<>();
+
+        jdbcTemplate.query(FIND_CURRENT_SQL,
+                rs -> {
+                    results.put(rs.getInt("slno"), AddressParseResult.restored(
+                            enumValue(MandalDetectionStatus.class, rs.getString("mandal_status")),
+                            rs.getString("mandal"),
+                            textSet(rs, "multiple_mandals"),
+                            enumValue(VillageDetectionStatus.class, rs.getString("village_status")),
+                            rs.getString("village"),
+                            textSet(rs, "multiple_villages"),
+                            rs.getString("district"),
+                            gazetteerVersion));
+                },
+                afterSlno, lastSlno, resolutionVersion(gazetteerVersion));
+
+        return results;
+    }
+
+    // ------------------ WRITE PATHS ------------------
+
+    private void writeByBatch(List<ResolutionPipeline.ResolvedUnit> units, String resolutionVersion,
+                              String centroidVersion) {
+
+        jdbcTemplate.execute(LOCK_STATS_SQL);
+        addCounts(countDeltas(units));
+
+        jdbcTemplate.batchUpdate(STAMP_UNIT_SQL, units, 500,
+                (ps, unit) -> {
+                    ps.setString(1, unit.village());
+                    ps.setString(2, unit.addressHash);
+                    ps.setString(3, resolutionVersion);
+                    ps.setInt(4, unit.slno);
+                }
+        );
+
+        jdbcTemplate.batchUpdate(UPSERT_RESULT_SQL, units, 500,
+                (ps, unit) -> {
+                    AddressParseResult r = unit.result;
+                    Connection connection = ps.getConnection();
+                    ps.setInt(1, unit.slno);
+                    ps.setString(2, r.getDistrict());
+                    ps.setString(3, r.getMandal());
+                    ps.setString(4, name(r.getMandalStatus()));
+                    ps.setArray(5, textArray(connection, r.getMultipleMandals()));
+                    ps.setString(6, r.getVillage());
+                    ps.setString(7, name(r.getVillageStatus()));
+                    ps.setArray(8, textArray(connection, r.getMultipleVillages()));
+                    ps.setInt(9, unit.slno);
+                    ps.setString(10, resolutionVersion);
+                    ps.setString(11, centroidVersion);
+                }
+        );
+    }
+
+    private void writeByCopy(List<ResolutionPipeline.ResolvedUnit> units, String resolutionVersion,
+                             String centroidVersion) {
+
+        // the transaction's own connection, so staging and applying commit with the checkpoint
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement st = connection.createStatement()) {
+                st.execute(CREATE_STAGE_SQL);
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_STAGE_SQL, new StringReader(toCsv(units)));
+            } catch (IOException e) {
+                throw new SQLException("COPY into unit_resolution_stage failed", e);
+            }
+            // counters first: they need the results the batch is about to replace
+            try (Statement st = connection.createStatement()) {
+                st.execute(LOCK_STATS_SQL);
+                st.executeUpdate(APPLY_COUNTS_SQL);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(APPLY_STAMP_SQL)) {
+                ps.setString(1, resolutionVersion);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(APPLY_RESULT_SQL)) {
+                ps.setString(1, resolutionVersion);
+                ps.setString(2, centroidVersion);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /** Net counter moves of a batch, keyed and ordered by counter key. */
+    private Map<List<String>, Long> countDeltas(List<ResolutionPipeline.ResolvedUnit> units) {
+
+        Map<Integer, AddressParseResult> results = new HashMap<>(units.size() * 2);
+        for (ResolutionPipeline.ResolvedUnit unit : units) {
+            results.put(unit.slno, unit.result);
+        }
+
+        Map<List<String>, Long> deltas = new TreeMap<>(UnitResolutionStats.KEY_ORDER);
+        jdbcTemplate.query(PREVIOUS_KEYS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", results.keySet().toArray())),
+                (RowCallbackHandler) rs -> {
+                    if (rs.getBoolean("counted")) {
+                        deltas.merge(UnitResolutionStats.key(rs), -1L, Long::sum);
+                    }
+                    AddressParseResult r = results.get(rs.getInt("slno"));
+                    deltas.merge(UnitResolutionStats.key(r.getDistrict(), r.getMandal(), r.getVillage(),
+                            rs.getString("new_category"),
+                            r.getVillageStatus() != null ? name(r.getVillageStatus()) : name(r.getMandalStatus())),
+                            1L, Long::sum);
+                });
+
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    private void addCounts(Map<List<String>, Long> deltas) {
+        if (deltas.isEmpty()) return;
+        jdbcTemplate.batchUpdate(ADD_COUNT_SQL, new ArrayList<>(deltas.entrySet()), 500,
+                (ps, delta) -> {
+                    List<String> key = delta.getKey();
+                    for (int i = 0; i < key.size(); i++) {
+                        ps.setString(i + 1, key.get(i));
+                    }
+                    ps.setLong(6, delta.getValue());
+                }
+        );
+    }
+
+    // ------------------ HELPERS ------------------
+
+    /** The batch as COPY csv rows, in {@link #COPY_STAGE_SQL} column order. */
+    static String toCsv(List<ResolutionPipeline.ResolvedUnit> units) {
+        StringBuilder csv = new StringBuilder(units.size() * 96);
+        for (ResolutionPipeline.ResolvedUnit unit : units) {
+            AddressParseResult r = unit.result;
+            csvField(csv, unit.addressHash).append(',');
+            csv.append(unit.slno).append(',');
+            csvField(csv, r.getDistrict()).append(',');
+            csvField(csv, r.getMandal()).append(',');
+            csvField(csv, name(r.getMandalStatus())).append(',');
+            csvField(csv, arrayLiteral(r.getMultipleMandals())).append(',');
+            csvField(csv, r.getVillage()).append(',');
+            csvField(csv, name(r.getVillageStatus())).append(',');
+            csvField(csv, arrayLiteral(r.getMultipleVillages())).append('\n');
+        }
+        return csv.toString();
+    }
+
+    // csv: an unquoted empty field is NULL, a quoted one is a (possibly empty) string
+    private static StringBuilder csvField(StringBuilder csv, String value) {
+        if (value == null) return csv;
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static String arrayLiteral(Set<String> values) {
+        if (values == null) return null;
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        for (String value : values) {
+            literal.add('"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+        }
+        return literal.toString();
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    private static Array textArray(Connection connection, Set<String> values) throws SQLException {
+        return values == null ? null : connection.createArrayOf("text", values.toArray());
+    }
+
+    private static Set<String> textSet(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) return null;
+        try {
+            return new LinkedHashSet<>(Arrays.asList((String[]) array.getArray()));
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.address.AddressNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Where the units of each village and mandal are, learnt from the units
+ * already resolved to exactly one: the median of their coordinates
+ * ({@code lattitude} / {@code longitute}, free text, often blank or junk, so
+ * only plausible numbers count).
+ * <p>
+ * Used to break a tie: when an address matches several villages of a mandal
+ * (or several mandals of a district), the unit's own coordinates pick the
+ * candidate whose centroid is nearest, provided every candidate has one, the
+ * nearest is within reach and clearly nearer than the runner-up. Otherwise
+ * the tie stands. The candidates are known, so a lookup is one map get and
+ * one distance per candidate.
+ * <p>
+ * Loaded on first use and reloaded by the bulk job before each run; units it
+ * resolves are marked NEAREST_*, never SINGLE_*, so they do not feed back.
+ * Each load has a {@link #generation()}, stamped on the results of that run so
+ * ties left standing are tried again once the centroids change.
+ */
+@Component
+public class VillageCentroids {
+
+    private static final Logger log = LoggerFactory.getLogger(VillageCentroids.class);
+
+    private static final String NUMBER = "'^-?[0-9]{1,3}(\\.[0-9]+)?$'";
+
+    // units with plausible coordinates; CASE so junk is never cast
+    private static final String LOCATED =
+            " FROM unit_address_resolution r JOIN msme_unit_details u ON u.slno = r.slno" +
+            " CROSS JOIN LATERAL (SELECT" +
+            " CASE WHEN trim(u.lattitude) ~ " + NUMBER + " THEN trim(u.lattitude)::float8 END AS lat," +
+            " CASE WHEN trim(u.longitute) ~ " + NUMBER + " THEN trim(u.longitute)::float8 END AS lon) c" +
+            " WHERE c.lat BETWEEN -90 AND 90 AND c.lon BETWEEN -180 AND 180 AND NOT (c.lat = 0 AND c.lon = 0)";
+
+    /**
+     * The unit's coordinates look like numbers, over {@code msme_unit_details u};
+     * cheap pre-filter for rows {@link Location#of} may accept.
+     */
+    static final String HAS_LOCATION =
+            "trim(u.lattitude) ~ " + NUMBER + " AND trim(u.longitute) ~ " + NUMBER;
+
+    private static final String MEDIANS =
+            "percentile_cont(0.5) WITHIN GROUP (ORDER BY c.lat) AS lat, " +
+            "percentile_cont(0.5) WITHIN GROUP (ORDER BY c.lon) AS lon, count(*) AS units";
+
+    private static final String VILLAGES_SQL =
+            "SELECT r.district, r.mandal, r.village, " + MEDIANS + LOCATED +
+            " AND r.village_status = 'SINGLE_VILLAGE' GROUP BY r.district, r.mandal, r.village HAVING count(*) >= ?";
+
+    private static final String MANDALS_SQL =
+            "SELECT r.district, r.mandal, " + MEDIANS + LOCATED +
+            " AND r.mandal_status = 'SINGLE_MANDAL' GROUP BY r.district, r.mandal HAVING count(*) >= ?";
+
+    /** A unit's coordinates, in degrees. */
+    public static final class Location {
+
+        final double lat;
+        final double lon;
+
+        private Location(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        /** The unit's coordinate columns as a location; null when either is blank or not plausible. */
+        public static Location of(String latitude, String longitude) {
+            double lat = parse(latitude);
+            double lon = parse(longitude);
+            if (Double.isNaN(lat) || Double.isNaN(lon) || lat < -90 || lat > 90 || lon < -180 || lon > 180
+                    || (lat == 0 && lon == 0)) {
+                return null;
+            }
+            return new Location(lat, lon);
+        }
+
+        private static double parse(String value) {
+            if (value == null || value.isBlank()) return Double.NaN;
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    private static final class Centroid {
+        double lat;
+        double lon;
+        long units;
+
+        // display mandal names ("Mavala", "Mavala (New)") land on one key
+        void add(double lat, double lon, long units) {
+            long total = this.units + units;
+            this.lat = (this.lat * this.units + lat * units) / total;
+            this.lon = (this.lon * this.units + lon * units) / total;
+            this.units = total;
+        }
+    }
+
+    private static final class Snapshot {
+        // mandal key -> village name -> centroid
+        final Map<String, Map<String, Centroid>> villages;
+        // mandal key -> centroid
+        final Map<String, Centroid> mandals;
+        // hash of the contents; equal on every instance that loaded the same centroids
+        final String generation;
+
+        Snapshot(Map<String, Map<String, Centroid>> villages, Map<String, Centroid> mandals) {
+            this.villages = villages;
+            this.mandals = mandals;
+
+            // order-independent: a sum of per-centroid hashes
+            long hash = 0;
+            for (Map.Entry<String, Map<String, Centroid>> mandal : villages.entrySet()) {
+                for (Map.Entry<String, Centroid> village : mandal.getValue().entrySet()) {
+                    hash += hash(mandal.getKey() + '\n' + village.getKey(), village.getValue());
+                }
+            }
+            for (Map.Entry<String, Centroid> mandal : mandals.entrySet()) {
+                hash += hash(mandal.getKey(), mandal.getValue()) * 31;
+            }
+            this.generation = Long.toHexString(hash);
+        }
+
+        private static long hash(String key, Centroid c) {
+            long h = key.hashCode();
+            h = mix(h ^ Double.doubleToLongBits(c.lat));
+            h = mix(h ^ Double.doubleToLongBits(c.lon));
+            return mix(h ^ c.units);
+        }
+
+        // splitmix64 finalizer
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AddressNormalizer normalizer;
+    private final boolean enabled;
+    private final int minUnits;
+    private final double villageRadiusKm;
+    private final double mandalRadiusKm;
+    private final double margin;
+
+    private volatile Snapshot snapshot;
+
+    // district + mandal as the parser names them -> normalized key; a few hundred at most
+    private final Map<String, String> mandalKeys = new ConcurrentHashMap<>();
+
+    public VillageCentroids(JdbcTemplate jdbcTemplate,
+                            AddressNormalizer normalizer,
+                            @Value("${address.location.enabled:true}") boolean enabled,
+                            @Value("${address.location.min-units:3}") int minUnits,
+                            @Value("${address.location.village-radius-km:10}") double villageRadiusKm,
+                            @Value("${address.location.mandal-radius-km:30}") double mandalRadiusKm,
+                            @Value("${address.location.margin:1.5}") double margin) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.normalizer = normalizer;
+        this.enabled = enabled;
+        this.minUnits = minUnits;
+        this.villageRadiusKm = villageRadiusKm;
+        this.mandalRadiusKm = mandalRadiusKm;
+        this.margin = margin;
+    }
+
+    /** Recomputes the centroids from the stored results. */
+    public void refresh() {
+        if (!enabled) return;
+
+        Map<String, Map<String, Centroid>> villages = new HashMap<>();
+        int[] villageCount = {0};
+        jdbcTemplate.query(VILLAGES_SQL, (RowCallbackHandler) rs -> {
+            villages.computeIfAbsent(key(rs.getString("district"), rs.getString("mandal")), k -> new HashMap<>())
+                    .computeIfAbsent(rs.getString("village"), k -> {
+                        villageCount[0]++;
+                        return new Centroid();
+                    })
+                    .add(rs.getDouble("lat"), rs.getDouble("lon"), rs.getLong("units"));
+        }, minUnits);
+
+        Map<String, Centroid> mandals = new HashMap<>();
+        jdbcTemplate.query(MANDALS_SQL, (RowCallbackHandler) rs -> {
+            mandals.computeIfAbsent(key(rs.getString("district"), rs.getString("mandal")), k -> new Centroid())
+                    .add(rs.getDouble("lat"), rs.getDouble("lon"), rs.getLong("units"));
+        }, minUnits);
+
+        snapshot = new Snapshot(villages, mandals);
+        log.info("Village centroids loaded: {} villages, {} mandals", villageCount[0], mandals.size());
+    }
+
+    /**
+     * Identifies the centroids loaded; changes whenever any of them does. Null
+     * when tie-breaking by location is disabled.
+     */
+    public String generation() {
+        return enabled ? current().generation : null;
+    }
+
+    /**
+     * The village of {@code mandal} among {@code candidates} nearest to
+     * {@code location}; null when the location cannot tell them apart.
+     */
+    public String nearestVillage(String district, String mandal, Set<String> candidates, Location location) {
+        if (!enabled || location == null || candidates == null || candidates.size() < 2) return null;
+        Map<String, Centroid> villages = current().villages.getOrDefault(mandalKey(district, mandal), Map.of());
+        return nearest(candidates, villages::get, location, villageRadiusKm);
+    }
+
+    /**
+     * The mandal of {@code district} among {@code candidates} nearest to
+     * {@code location}; null when the location cannot tell them apart.
+     */
+    public String nearestMandal(String district, Set<String> candidates, Location location) {
+        if (!enabled || location == null || candidates == null || candidates.size() < 2) return null;
+        Map<String, Centroid> mandals = current().mandals;
+        return nearest(candidates, c -> mandals.get(mandalKey(district, c)), location, mandalRadiusKm);
+    }
+
+    // ------------------ HELPERS ------------------
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // parsing goes on without; the next bulk run tries again
+                        log.warn("Village centroids could not be loaded: {}", e.getMessage());
+                        snapshot = new Snapshot(Map.of(), Map.of());
+                    }
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    private String nearest(Set<String> candidates, Function<String, Centroid> centroids,
+                           Location location, double radiusKm) {
+        String best = null;
+        double bestKm = Double.MAX_VALUE;
+        double secondKm = Double.MAX_VALUE;
+        for (String candidate : candidates) {
+            Centroid c = centroids.apply(candidate);
+            if (c == null) {
+                // the unit may well be in the candidate we know nothing about
+                return null;
+            }
+            double km = distanceKm(location.lat, location.lon, c.lat, c.lon);
+            if (km < bestKm) {
+                secondKm = bestKm;
+                bestKm = km;
+                best = candidate;
+            } else if (km < secondKm) {
+                secondKm = km;
+            }
+        }
+        if (bestKm > radiusKm || secondKm < bestKm * margin) {
+            return null;
+        }
+        return best;
+    }
+
+    // equirectangular approximation; exact enough within a district
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6371.0;
+    }
+
+    // memoized key(district, mandal)
+    private String mandalKey(String district, String mandal) {
+        return mandalKeys.computeIfAbsent(district + '\n' + mandal, k -> key(district, mandal));
+    }
+
+    // mandal by base name: results carry the display name, candidates the gazetteer one. Mandals
+    // differing only by qualifier share a centroid, so a tie between them stands (equal distances)
+    private String key(String district, String mandal) {
+        return normalizer.normalize(district == null ? "" : district) + '\n' + baseName(mandal);
+    }
+
+    private String baseName(String name) {
+        if (name == null) return "";
+        int open = name.indexOf('(');
+        return normalizer.normalize(open < 0 ? name : name.substring(0, open));
+    }
+}
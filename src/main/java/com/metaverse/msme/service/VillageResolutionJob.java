@@ -0,0 +1,282 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.gazetteer.GazetteerProvider;
+import com.metaverse.msme.model.BulkJobCheckpoint;
+import com.metaverse.msme.repository.BulkJobCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-resolves the village of every unit and writes it back to
+ * {@code msme_unit_details}.
+ * <p>
+ * The run is incremental: each unit is stamped with a hash of its district,
+ * address and coordinates and with the parser/gazetteer version that resolved it, and only
+ * units whose hash or version is stale are read again. A run after a day of
+ * edits costs the edited rows; a new gazetteer or {@link AddressParseService#PARSER_VERSION}
+ * makes every row stale.
+ * <p>
+ * Besides the village, the full outcome of each parse (mandal, statuses,
+ * ambiguous candidates) is upserted into {@link UnitResolutionStore}, which
+ * also keeps the {@link UnitResolutionStats} counters up to date.
+ * <p>
+ * The slno keyspace is split into ranges leased through {@link SlnoRangeLeases},
+ * so every instance that runs the job at the same time takes its own ranges
+ * and adding instances adds throughput. Each claimed range is streamed through
+ * a {@link ResolutionPipeline}: reading, parsing and writing overlap instead
+ * of taking turns. Batches are committed in slno order, each together with its
+ * range's progress: a failure loses at most the batches in flight, and the
+ * range resumes right after its last committed slno instead of starting over.
+ * The {@link BulkJobCheckpoint} row summarises the ranges; it is written when
+ * an instance starts and stops, not per batch, so instances never queue on it.
+ */
+@Service
+public class VillageResolutionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(VillageResolutionJob.class);
+
+    public static final String JOB_NAME = "village-resolution";
+
+    // pid@host: identifies this instance in bulk_job_range.owner
+    private static final String OWNER_PREFIX = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final BulkJobCheckpointRepository checkpointRepository;
+    private final GazetteerProvider gazetteerProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final UnitResolutionStore resolutionStore;
+    private final UnitResolutionStats resolutionStats;
+    private final VillageCentroids villageCentroids;
+    private final SlnoRangeLeases leases;
+    private final ResolutionPipeline pipeline;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile PipelineStats lastPipelineStats;
+
+    public VillageResolutionJob(BulkJobCheckpointRepository checkpointRepository,
+                                AddressParseService addressParseService,
+                                GazetteerProvider gazetteerProvider,
+                                PlatformTransactionManager transactionManager,
+                                UnitResolutionStore resolutionStore,
+                                UnitResolutionStats resolutionStats,
+                                VillageCentroids villageCentroids,
+                                SlnoRangeLeases leases,
+                                ParseExecutors parseExecutors,
+                                DataSource dataSource,
+                                @Value("${address.bulk.batch-size:2000}") int batchSize,
+                                @Value("${address.bulk.fetch-size:1000}") int fetchSize,
+                                @Value("${address.bulk.parse-workers:0}") int parseWorkers,
+                                @Value("${address.bulk.queue-capacity:4}") int queueCapacity) {
+        this.checkpointRepository = checkpointRepository;
+        this.gazetteerProvider = gazetteerProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.resolutionStore = resolutionStore;
+        this.resolutionStats = resolutionStats;
+        this.villageCentroids = villageCentroids;
+        this.leases = leases;
+        this.pipeline = new ResolutionPipeline(dataSource, addressParseService, gazetteerProvider, parseExecutors,
+                batchSize, fetchSize,
+                parseWorkers > 0 ? parseWorkers : Runtime.getRuntime().availableProcessors(),
+                queueCapacity);
+    }
+
+    /**
+     * Runs the job, resuming an interrupted run unless {@code restart} is set.
+     * Either way only stale units are resolved. Joins the ranges of a run
+     * already in progress on another instance.
+     *
+     * @return rows updated by this invocation
+     */
+    public long run(boolean restart) {
+        return run(restart, JobProgress.NONE);
+    }
+
+    /**
+     * Same as {@link #run(boolean)}, reporting rows to {@code progress}. Once
+     * cancelled, reading stops and the batches already read are committed; the
+     * unfinished range is handed back with its progress and resumed by the
+     * next claim.
+     */
+    public long run(boolean restart, JobProgress progress) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Village resolution job is already running");
+        }
+        try {
+            return execute(restart, progress);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public BulkJobCheckpoint checkpoint() {
+        return checkpointRepository.findById(JOB_NAME).orElse(null);
+    }
+
+    /** Ranges of the current (or last) run across all instances. */
+    public List<Map<String, Object>> ranges() {
+        return leases.ranges(JOB_NAME);
+    }
+
+    /** Per-stage throughput of the current or last run in this process. */
+    public Map<String, Object> pipelineStats() {
+        PipelineStats stats = lastPipelineStats;
+        return stats == null ? Map.of() : stats.toMap();
+    }
+
+    private long execute(boolean restart, JobProgress progress) {
+
+        String gazetteerVersion = gazetteerProvider.get().getVersion();
+        String resolutionVersion = UnitResolutionStore.resolutionVersion(gazetteerVersion);
+
+        if (leases.plan(JOB_NAME, restart)) {
+            log.info("Village resolution starting a new set of slno ranges");
+        } else {
+            log.info("Village resolution joining the slno ranges in progress");
+        }
+        saveCheckpoint(BulkJobCheckpoint.RUNNING, gazetteerVersion);
+
+        // batches move the counters from their current values, so those have to exist
+        resolutionStats.rebuildIfEmpty();
+        // ties are broken with what the previous runs resolved; ties resolved under
+        // other centroids are stale, these may break them
+        villageCentroids.refresh();
+        String centroidVersion = villageCentroids.generation();
+
+        // fresh per run: a lease left behind by a previous run of this process is not ours
+        String owner = OWNER_PREFIX + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+        PipelineStats stats = new PipelineStats();
+        lastPipelineStats = stats;
+
+        long claimedRows = 0;
+        long updatedThisRun = 0;
+        SlnoRangeLeases.Lease lease = null;
+
+        try {
+            while (!progress.isCancelled() && (lease = leases.claim(JOB_NAME, owner)) != null) {
+
+                claimedRows += pipeline.countStale(lease.lastSlno, lease.rangeEnd, resolutionVersion, centroidVersion);
+                progress.total(claimedRows);
+                log.info("Village resolution claimed slno range {}, resuming after {}", lease, lease.lastSlno);
+
+                try {
+                    updatedThisRun += resolveRange(lease, resolutionVersion, centroidVersion, progress, stats);
+                    if (progress.isCancelled()) {
+                        leases.release(lease);
+                    } else {
+                        leases.complete(lease);
+                    }
+                } catch (SlnoRangeLeases.LeaseLostException e) {
+                    // another instance took the range over after our lease expired; it redoes the rest
+                    log.warn("{}; moving on to the next range", e.getMessage());
+                }
+                lease = null;
+            }
+
+            stats.finish();
+            String status = saveCheckpoint(progress.isCancelled() ? BulkJobCheckpoint.CANCELLED : null,
+                    gazetteerVersion);
+            log.info("Village resolution {} on this instance: {} rows updated, {}",
+                    status.toLowerCase(), updatedThisRun, stats.toMap());
+            return updatedThisRun;
+
+        } catch (RuntimeException e) {
+            stats.finish();
+            log.error("Village resolution failed; {} resumes from its last committed batch",
+                    lease != null ? "slno range " + lease : "the run", e);
+            if (lease != null) {
+                releaseQuietly(lease);
+            }
+            markFailed();
+            throw e;
+        }
+    }
+
+    /** Resolves the stale rows of one leased range; returns villages written. */
+    private long resolveRange(SlnoRangeLeases.Lease lease, String resolutionVersion, String centroidVersion,
+                              JobProgress progress, PipelineStats stats) {
+
+        long[] updated = {0};
+
+        pipeline.run(lease.lastSlno, lease.rangeEnd, resolutionVersion, centroidVersion, progress, stats, batch -> {
+
+            String batchVersion = UnitResolutionStore.resolutionVersion(batch.gazetteerVersion);
+
+            // range progress, unit updates and stored results commit together; the range
+            // row goes first so a lost lease fails the batch before anything is written
+            transactionTemplate.executeWithoutResult(status -> {
+                leases.advance(lease, batch.lastSlno, batch.rows(), batch.villagesFound);
+                resolutionStore.write(batch.units, batchVersion, centroidVersion);
+            });
+
+            updated[0] += batch.villagesFound;
+            progress.advance(batch.rows());
+
+            log.debug("Village resolution batch committed: range={}, lastSlno={}, rows={}, villages={}",
+                    lease, batch.lastSlno, batch.rows(), batch.villagesFound);
+        });
+
+        return updated[0];
+    }
+
+    /**
+     * Writes the summary of all ranges. With a null {@code status} it is
+     * COMPLETED once no range is open and RUNNING while other instances still
+     * hold some.
+     *
+     * @return the status written
+     */
+    private String saveCheckpoint(String status, String gazetteerVersion) {
+        SlnoRangeLeases.Totals totals = leases.totals(JOB_NAME);
+        if (status == null) {
+            status = totals.openRanges == 0 ? BulkJobCheckpoint.COMPLETED : BulkJobCheckpoint.RUNNING;
+        }
+
+        BulkJobCheckpoint checkpoint = new BulkJobCheckpoint();
+        checkpoint.setJobName(JOB_NAME);
+        checkpoint.setStatus(status);
+        checkpoint.setLastSlno(totals.lastSlno);
+        checkpoint.setRowsScanned(totals.rowsScanned);
+        checkpoint.setRowsUpdated(totals.rowsUpdated);
+        checkpoint.setGazetteerVersion(gazetteerVersion);
+        checkpoint.setStartedAt(totals.plannedAt);
+        checkpoint.setUpdatedAt(Instant.now());
+        if (BulkJobCheckpoint.COMPLETED.equals(status)) {
+            checkpoint.setCompletedAt(checkpoint.getUpdatedAt());
+        }
+        checkpointRepository.save(checkpoint);
+        return status;
+    }
+
+    private void releaseQuietly(SlnoRangeLeases.Lease lease) {
+        try {
+            leases.release(lease);
+        } catch (RuntimeException e) {
+            log.warn("Could not release slno range {}; it is reclaimed when the lease expires", lease, e);
+        }
+    }
+
+    // status only: progress stays with the ranges
+    private void markFailed() {
+        try {
+            checkpointRepository.findById(JOB_NAME).ifPresent(c -> {
+                c.setStatus(BulkJobCheckpoint.FAILED);
+                c.setUpdatedAt(Instant.now());
+                checkpointRepository.save(c);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not mark village resolution checkpoint as failed", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+-- Tables (and msme_unit_details columns) owned by the bulk address resolution jobs.
+-- Runs on every start (spring.sql.init.mode=always), so every statement is idempotent.
+
+CREATE TABLE IF NOT EXISTS bulk_job_checkpoint (
+    job_name          VARCHAR(64)  PRIMARY KEY,
+    status            VARCHAR(16)  NOT NULL,
+    last_slno         INTEGER      NOT NULL DEFAULT 0,
+    rows_scanned      BIGINT       NOT NULL DEFAULT 0,
+    rows_updated      BIGINT       NOT NULL DEFAULT 0,
+    gazetteer_version VARCHAR(64),
+    started_at        TIMESTAMPTZ  NOT NULL,
+    updated_at        TIMESTAMPTZ  NOT NULL,
+    completed_at      TIMESTAMPTZ
+);
+
+CREATE TABLE IF NOT EXISTS bulk_job (
+    id              VARCHAR(36)  PRIMARY KEY,
+    job_type        VARCHAR(32)  NOT NULL,
+    status          VARCHAR(16)  NOT NULL,
+    parameters      VARCHAR(255),
+    rows_total      BIGINT,
+    rows_processed  BIGINT       NOT NULL DEFAULT 0,
+    submitted_at    TIMESTAMPTZ  NOT NULL,
+    started_at      TIMESTAMPTZ,
+    finished_at     TIMESTAMPTZ,
+    updated_at      TIMESTAMPTZ  NOT NULL,
+    error           TEXT,
+    artifact_path   VARCHAR(512)
+);
+
+CREATE INDEX IF NOT EXISTS bulk_job_submitted_idx ON bulk_job (submitted_at DESC);
+
+-- the instance running a job, its last sign of life, and a cancel any instance may request
+ALTER TABLE bulk_job ADD COLUMN IF NOT EXISTS owner            VARCHAR(128);
+ALTER TABLE bulk_job ADD COLUMN IF NOT EXISTS heartbeat_at     TIMESTAMPTZ;
+ALTER TABLE bulk_job ADD COLUMN IF NOT EXISTS cancel_requested BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Incremental re-resolution: what each unit was last resolved from (a hash of
+-- district and address, computed in SQL) and under which parser:gazetteer version.
+ALTER TABLE msme_unit_details ADD COLUMN IF NOT EXISTS address_hash     VARCHAR(32);
+ALTER TABLE msme_unit_details ADD COLUMN IF NOT EXISTS resolved_version VARCHAR(64);
+
+-- GET /units: keyset pages of a village's units, matched case-insensitively.
+CREATE INDEX IF NOT EXISTS msme_unit_village_mandal_slno_idx
+    ON msme_unit_details (upper(village), upper(mandal), slno);
+
+-- Full outcome of the last resolution of each unit; current while the unit's
+-- address_hash / resolved_version stamp above still holds.
+CREATE TABLE IF NOT EXISTS unit_address_resolution (
+    slno              INTEGER      PRIMARY KEY,
+    district          VARCHAR(128),
+    mandal            VARCHAR(128),
+    mandal_status     VARCHAR(32),
+    multiple_mandals  TEXT[],
+    village           VARCHAR(128),
+    village_status    VARCHAR(32),
+    multiple_villages TEXT[],
+    resolved_version  VARCHAR(64)  NOT NULL,
+    resolved_at       TIMESTAMPTZ  NOT NULL
+);
+-- category the unit had when its result was counted in unit_resolution_stats
+ALTER TABLE unit_address_resolution ADD COLUMN IF NOT EXISTS category TEXT;
+-- VillageCentroids generation the unit was resolved with; a tie left standing is
+-- tried again once it differs
+ALTER TABLE unit_address_resolution ADD COLUMN IF NOT EXISTS centroid_version VARCHAR(32);
+
+-- Units per district, mandal, village, category and address status, moved by
+-- every batch of the bulk resolution job; '' stands for an unknown value.
+CREATE TABLE IF NOT EXISTS unit_resolution_stats (
+    district        VARCHAR(128) NOT NULL,
+    mandal          VARCHAR(128) NOT NULL,
+    village         VARCHAR(128) NOT NULL,
+    category        TEXT         NOT NULL,
+    address_status  VARCHAR(32)  NOT NULL,
+    unit_count      BIGINT       NOT NULL,
+    PRIMARY KEY (district, mandal, village, category, address_status)
+);
+
+-- slno ranges of a bulk job, leased to the instances running it. range_start is
+-- exclusive, range_end inclusive; last_slno is the range's own checkpoint.
+CREATE TABLE IF NOT EXISTS bulk_job_range (
+    job_name          VARCHAR(64)  NOT NULL,
+    range_start       INTEGER      NOT NULL,
+    range_end         INTEGER      NOT NULL,
+    status            VARCHAR(16)  NOT NULL,
+    owner             VARCHAR(128),
+    lease_expires_at  TIMESTAMPTZ,
+    last_slno         INTEGER      NOT NULL,
+    rows_scanned      BIGINT       NOT NULL DEFAULT 0,
+    rows_updated      BIGINT       NOT NULL DEFAULT 0,
+    created_at        TIMESTAMPTZ  NOT NULL,
+    updated_at        TIMESTAMPTZ  NOT NULL,
+    PRIMARY KEY (job_name, range_start)
+);
@@ -0,0 +1,134 @@
+package com.metaverse.msme.address;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The regex-free scanner must produce exactly what the old regex chain did.
+ */
+class AddressNormalizerTest {
+
+    private final AddressNormalizer normalizer = new AddressNormalizer();
+
+    @Test
+    void corpusMatchesRegexImplementation() throws Exception {
+        for (String address : corpus()) {
+            assertEquals(Legacy.meaningfulTokenSet(address), normalizer.meaningfulTokenSet(address), address);
+            assertEquals(Legacy.normalize(address), normalizer.normalize(address), address);
+        }
+    }
+
+    @Test
+    void randomAddressesMatchRegexImplementation() {
+        String[] parts = {
+                "road", "Road/Street:-", "road / street :", "street", "/", ":", "-", ":-", ",", " ", "\t", "\n",
+                "(V)", "(m)", "(rd)", "((v))", "(v1)", "Flat No:-", "flat", "no", "building:", "Village/Town:-",
+                "block", "City:", "H.No", "d.no", "hno", "plot", "12", "4-5/6", "_", "colony", "area", "lane",
+                "st", "muthnoor", "Indervelly", "adilabad", "v", "near", "0", "é", "İ", "తెలుగు"
+        };
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = 1 + random.nextInt(12);
+            for (int k = 0; k < n; k++) {
+                sb.append(parts[random.nextInt(parts.length)]);
+                if (random.nextBoolean()) sb.append(' ');
+            }
+            String address = sb.toString();
+            assertEquals(Legacy.meaningfulTokenSet(address), normalizer.meaningfulTokenSet(address), address);
+            assertEquals(Legacy.normalize(address), normalizer.normalize(address), address);
+        }
+    }
+
+    @Test
+    void normalizedInputIsReturnedAsIs() {
+        String token = "muthnoor";
+        assertSame(token, normalizer.normalize(token));
+    }
+
+    private List<String> corpus() throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                Objects.requireNonNull(getClass().getResourceAsStream("/address-corpus.txt")),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    // the implementation this scanner replaced
+    private static final class Legacy {
+
+        static String normalize(String raw) {
+            if (raw == null) return "";
+
+            return raw
+                    .toLowerCase()
+                    .replaceAll("[()]", " ")
+                    .replaceAll("[^a-z0-9\\s]", " ")
+                    .replaceAll("\\s+", " ")
+                    .trim();
+        }
+
+        static List<String> meaningfulTokenSet(String raw) {
+
+            if (raw == null || raw.isBlank()) return Collections.emptyList();
+
+            String norm = normalize(cleanRawAddress(raw));
+            String[] parts = norm.split("\\s+");
+
+            Set<String> STOP = Set.of(
+                    "village", "town", "city", "district", "dist", "mandal",
+                    "block", "street", "st", "rd", "lane", "colony",
+                    "house", "flat", "building", "doorno", "plot", "near", "opp",
+                    "area", "locality", "0", "-"
+            );
+
+            List<String> out = new ArrayList<>();
+            for (String p : parts) {
+                if (p == null) continue;
+                p = p.trim();
+                if (p.isEmpty()) continue;
+                if (STOP.contains(p)) continue;
+                if (p.length() <= 1) continue;
+                if (p.matches("^[0-9]+$")) continue;
+
+                out.add(p);
+            }
+            return out;
+        }
+
+        static String cleanRawAddress(String raw) {
+
+            if (raw == null) return "";
+
+            String lower = raw.toLowerCase();
+
+            if (lower.matches(".*road\\s*/\\s*street\\s*:-?.*")) {
+                lower = lower.replaceAll("road\\s*/\\s*street\\s*:-?\\s*[^,]+", " ");
+                lower = lower.replaceAll("\\b(flat\\s*no|building|village/town|block|city)\\s*:-?", " ");
+            } else {
+                lower = lower.replaceAll("\\b(road|street|lane|rd|st|colony|area|block)\\b", " ");
+                lower = lower.replaceAll("\\([a-z]+\\)", " ");
+            }
+
+            lower = lower.replaceAll("\\b(h\\.?no|d\\.?no|plot|flat)\\b\\s*[:\\-]?\\s*\\w+", " ");
+
+            lower = lower.replaceAll("[^a-z\\s]", " ");
+            lower = lower.replaceAll("\\s+", " ").trim();
+
+            return lower;
+        }
+    }
+}
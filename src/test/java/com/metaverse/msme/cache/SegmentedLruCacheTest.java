@@ -0,0 +1,61 @@
+package com.metaverse.msme.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLruCacheTest {
+
+    @Test
+    void loadsOnceAndCountsHitsAndMisses() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, 1);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", k -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.get("a", k -> { loads.incrementAndGet(); return "X"; }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void neverExceedsMaximumSize() {
+        SegmentedLruCache<Integer, Integer> cache = new SegmentedLruCache<>(100, 8);
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i, k -> k);
+            if (i % 3 == 0) cache.get(i / 2, k -> k);
+        }
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    void reusedEntriesSurviveAScanOfOneOffKeys() {
+        SegmentedLruCache<Integer, Integer> cache = new SegmentedLruCache<>(100, 1);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+            cache.getIfPresent(i);          // second touch promotes
+        }
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, i);                // one-off keys churn through probation
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), cache.getIfPresent(i));
+        }
+    }
+
+    @Test
+    void nullValuesAreNotCachedAndInvalidateAllEmpties() {
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(10, 1);
+        assertNull(cache.get("missing", k -> null));
+        assertEquals(0, cache.size());
+
+        cache.put("a", "A");
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.getIfPresent("a"));
+    }
+}
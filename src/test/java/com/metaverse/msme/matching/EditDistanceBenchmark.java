@@ -0,0 +1,63 @@
+package com.metaverse.msme.matching;
+
+import java.util.Random;
+
+/**
+ * Per-comparison cost of the similarity check, legacy full-matrix
+ * levenshtein vs {@link NameSimilarity#isSimilar}. Not a unit test; run the
+ * {@code main} method from the IDE or with
+ * {@code java -cp target/classes:target/test-classes com.metaverse.msme.matching.EditDistanceBenchmark}.
+ */
+public class EditDistanceBenchmark {
+
+    private static final int PAIRS = 10_000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        String[] a = new String[PAIRS];
+        String[] b = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            // token vs gazetteer name: mostly unrelated, some near misses
+            a[i] = EditDistanceTest.randomName(random, 5, 14);
+            b[i] = random.nextInt(10) == 0
+                    ? EditDistanceTest.mutate(random, a[i])
+                    : EditDistanceTest.randomName(random, 5, 14);
+        }
+
+        // warm-up
+        run("legacy", a, b, true);
+        run("kernel", a, b, false);
+
+        for (int r = 0; r < 3; r++) {
+            long legacy = run("legacy", a, b, true);
+            long kernel = run("kernel", a, b, false);
+            System.out.printf("legacy %6.1f ns/cmp   kernel %6.1f ns/cmp   speed-up %.1fx%n",
+                    (double) legacy / (PAIRS * ROUNDS),
+                    (double) kernel / (PAIRS * ROUNDS),
+                    (double) legacy / kernel);
+        }
+    }
+
+    private static long run(String name, String[] a, String[] b, boolean legacy) {
+        int matches = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < PAIRS; i++) {
+                boolean similar = legacy
+                        ? legacySimilarity(a[i], b[i]) >= 0.90
+                        : NameSimilarity.isSimilar(a[i], b[i]);
+                if (similar) matches++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (matches < 0) System.out.println(name);   // keep the loop alive
+        return elapsed;
+    }
+
+    private static double legacySimilarity(String s1, String s2) {
+        int dist = EditDistanceTest.referenceDistance(s1, s2);
+        int max = Math.max(s1.length(), s2.length());
+        return max == 0 ? 1.0 : 1.0 - ((double) dist / max);
+    }
+}
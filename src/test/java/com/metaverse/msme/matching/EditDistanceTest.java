@@ -0,0 +1,89 @@
+package com.metaverse.msme.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditDistanceTest {
+
+    @Test
+    void matchesFullMatrixDistance() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomName(random, 0, 20);
+            String b = random.nextInt(4) == 0 ? mutate(random, a) : randomName(random, 0, 20);
+            assertEquals(referenceDistance(a, b), EditDistance.distance(a, b), a + " / " + b);
+        }
+    }
+
+    @Test
+    void boundedIsExactUpToTheBound() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomName(random, 1, 90);   // also covers the > 64 char fallback
+            String b = mutate(random, mutate(random, a));
+            int k = random.nextInt(5);
+            int expected = referenceDistance(a, b);
+            int actual = EditDistance.bounded(a, b, k);
+            if (expected <= k) {
+                assertEquals(expected, actual, a + " / " + b);
+            } else {
+                assertTrue(actual > k, a + " / " + b);
+            }
+        }
+    }
+
+    @Test
+    void isSimilarMatchesLegacyThreshold() {
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomName(random, 1, 16);
+            String b = random.nextBoolean() ? mutate(random, a) : randomName(random, 1, 16);
+            int max = Math.max(a.length(), b.length());
+            double legacy = 1.0 - ((double) referenceDistance(a, b) / max);
+            assertEquals(legacy >= 0.90, NameSimilarity.isSimilar(a, b), a + " / " + b);
+        }
+    }
+
+    static String randomName(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append("abdghiklmnoprstuvy ".charAt(random.nextInt(19)));
+        }
+        return sb.toString();
+    }
+
+    static String mutate(Random random, String s) {
+        if (s.isEmpty()) return "a";
+        StringBuilder sb = new StringBuilder(s);
+        int p = random.nextInt(sb.length());
+        switch (random.nextInt(3)) {
+            case 0 -> sb.deleteCharAt(p);
+            case 1 -> sb.insert(p, (char) ('a' + random.nextInt(26)));
+            default -> sb.setCharAt(p, (char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    // the matrix implementation the detectors used to carry
+    static int referenceDistance(String s1, String s2) {
+        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= s2.length(); j++) dp[0][j] = j;
+
+        for (int i = 1; i <= s1.length(); i++) {
+            for (int j = 1; j <= s2.length(); j++) {
+                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(
+                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
+                        dp[i - 1][j - 1] + cost
+                );
+            }
+        }
+        return dp[s1.length()][s2.length()];
+    }
+}
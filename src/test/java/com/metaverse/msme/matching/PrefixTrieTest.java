@@ -0,0 +1,61 @@
+package com.metaverse.msme.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixTrieTest {
+
+    @Test
+    void matchesBruteForcePrefixDistance() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            List<String> keys = new ArrayList<>();
+            PrefixTrie<Integer> trie = new PrefixTrie<>();
+            for (int i = 0; i < 60; i++) {
+                String key = random.nextInt(3) == 0 && !keys.isEmpty()
+                        ? EditDistanceTest.mutate(random, keys.get(random.nextInt(keys.size())))
+                        : EditDistanceTest.randomName(random, 0, 12);
+                keys.add(key);
+                trie.add(key, i);
+            }
+            trie.build();
+
+            for (int q = 0; q < 20; q++) {
+                String query = random.nextBoolean()
+                        ? EditDistanceTest.mutate(random, prefix(random, keys.get(random.nextInt(keys.size()))))
+                        : EditDistanceTest.randomName(random, 0, 6);
+                int k = random.nextInt(3);
+
+                Map<Integer, Integer> expected = new HashMap<>();
+                for (int i = 0; i < keys.size(); i++) {
+                    int d = prefixDistance(query, keys.get(i));
+                    if (d <= k) expected.put(i, d);
+                }
+
+                Map<Integer, Integer> actual = new HashMap<>();
+                trie.search(query, k, (key, distance, value) -> {
+                    assertEquals(keys.get(value), key);
+                    assertTrue(actual.put(value, distance) == null, "reported twice: " + key);
+                });
+                assertEquals(expected, actual, query + " within " + k);
+            }
+        }
+    }
+
+    private static String prefix(Random random, String s) {
+        return s.substring(0, random.nextInt(s.length() + 1));
+    }
+
+    // fewest edits turning the query into some prefix of the key
+    private static int prefixDistance(String query, String key) {
+        int best = Integer.MAX_VALUE;
+        for (int end = 0; end <= key.length(); end++) {
+            best = Math.min(best, EditDistanceTest.referenceDistance(query, key.substring(0, end)));
+        }
+        return best;
+    }
+}
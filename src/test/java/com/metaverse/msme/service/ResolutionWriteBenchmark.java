@@ -0,0 +1,152 @@
+package com.metaverse.msme.service;
+
+import com.metaverse.msme.extractor.MandalDetectionStatus;
+import com.metaverse.msme.extractor.VillageDetectionStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Write cost of one bulk resolution run, {@code batch} (JDBC batch of per-row
+ * statements) vs {@code copy} (COPY into a staging table + set-based apply),
+ * against a scratch schema on a local PostgreSQL. Both modes must leave the
+ * same table contents; the run fails otherwise. Not a unit test; run the
+ * {@code main} method from the IDE or with
+ * {@code java -cp target/classes:target/test-classes:<deps> com.metaverse.msme.service.ResolutionWriteBenchmark}
+ * and {@code -Dbench.url=... -Dbench.user=... -Dbench.password=... -Dbench.rows=...}.
+ */
+public class ResolutionWriteBenchmark {
+
+    private static final String SCHEMA = "resolution_bench";
+    private static final int BATCH_SIZE = 2000;
+
+    public static void main(String[] args) {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/anji");
+        String user = System.getProperty("bench.user", "postgres");
+        String password = System.getProperty("bench.password", "anji");
+        int rows = Integer.getInteger("bench.rows", 200_000);
+
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, user, password, true);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        try {
+            createSchema(jdbc, rows);
+            List<List<ResolutionPipeline.ResolvedUnit>> batches = batches(rows, new Random(1));
+
+            // warm-up
+            run(jdbc, tx, batches, UnitResolutionStore.WriteMode.BATCH);
+            run(jdbc, tx, batches, UnitResolutionStore.WriteMode.COPY);
+
+            for (int r = 0; r < 3; r++) {
+                long batch = run(jdbc, tx, batches, UnitResolutionStore.WriteMode.BATCH);
+                String batchContents = contents(jdbc);
+                long copy = run(jdbc, tx, batches, UnitResolutionStore.WriteMode.COPY);
+                String copyContents = contents(jdbc);
+
+                if (!batchContents.equals(copyContents)) {
+                    throw new IllegalStateException("batch and copy modes wrote different contents");
+                }
+                System.out.printf("batch %8.0f rows/s   copy %8.0f rows/s   speed-up %.1fx%n",
+                        rows / (batch / 1e9), rows / (copy / 1e9), (double) batch / copy);
+            }
+        } finally {
+            jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    private static long run(JdbcTemplate jdbc, TransactionTemplate tx,
+                            List<List<ResolutionPipeline.ResolvedUnit>> batches,
+                            UnitResolutionStore.WriteMode mode) {
+
+        // every run starts from unresolved units, like a first full run
+        jdbc.execute("UPDATE msme_unit_details SET villageid = NULL, address_hash = NULL, resolved_version = NULL");
+        jdbc.execute("TRUNCATE unit_address_resolution, unit_resolution_stats");
+        jdbc.execute("VACUUM ANALYZE msme_unit_details");
+
+        UnitResolutionStore store = new UnitResolutionStore(jdbc, null, mode.name());
+        String version = UnitResolutionStore.resolutionVersion("bench");
+
+        long start = System.nanoTime();
+        for (List<ResolutionPipeline.ResolvedUnit> batch : batches) {
+            tx.executeWithoutResult(status -> store.write(batch, version, "bench"));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void createSchema(JdbcTemplate jdbc, int rows) {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("SET search_path TO " + SCHEMA);
+
+        // just the msme_unit_details columns the writers touch
+        jdbc.execute("CREATE TABLE msme_unit_details (" +
+                "slno INTEGER PRIMARY KEY, unitaddress TEXT, district TEXT, category TEXT, villageid TEXT, " +
+                "address_hash VARCHAR(32), resolved_version VARCHAR(64))");
+        jdbc.execute("CREATE TABLE unit_address_resolution (" +
+                "slno INTEGER PRIMARY KEY, district VARCHAR(128), mandal VARCHAR(128), mandal_status VARCHAR(32), " +
+                "multiple_mandals TEXT[], village VARCHAR(128), village_status VARCHAR(32), " +
+                "multiple_villages TEXT[], category TEXT, resolved_version VARCHAR(64) NOT NULL, " +
+                "centroid_version VARCHAR(32), resolved_at TIMESTAMPTZ NOT NULL)");
+        jdbc.execute("CREATE TABLE unit_resolution_stats (" +
+                "district VARCHAR(128) NOT NULL, mandal VARCHAR(128) NOT NULL, village VARCHAR(128) NOT NULL, " +
+                "category TEXT NOT NULL, address_status VARCHAR(32) NOT NULL, unit_count BIGINT NOT NULL, " +
+                "PRIMARY KEY (district, mandal, village, category, address_status))");
+        jdbc.update("INSERT INTO msme_unit_details (slno, unitaddress, district, category) " +
+                "SELECT i, 'H.No ' || i || ', some street, some village', 'Adilabad', " +
+                "CASE WHEN i % 3 = 0 THEN 'Micro' ELSE 'Small' END FROM generate_series(1, ?) i", rows);
+    }
+
+    private static List<List<ResolutionPipeline.ResolvedUnit>> batches(int rows, Random random) {
+        List<List<ResolutionPipeline.ResolvedUnit>> batches = new ArrayList<>();
+        List<ResolutionPipeline.ResolvedUnit> batch = new ArrayList<>(BATCH_SIZE);
+        for (int slno = 1; slno <= rows; slno++) {
+            batch.add(new ResolutionPipeline.ResolvedUnit(slno, randomResult(random), Integer.toHexString(slno)));
+            if (batch.size() == BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) batches.add(batch);
+        return batches;
+    }
+
+    // a mix of found, ambiguous and not found, with names that need escaping
+    private static AddressParseResult randomResult(Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 6) {
+            return AddressParseResult.restored(MandalDetectionStatus.SINGLE_MANDAL, "Mandal " + random.nextInt(20), null,
+                    VillageDetectionStatus.SINGLE_VILLAGE, "Village " + random.nextInt(500), null, "Adilabad", null);
+        }
+        if (kind < 8) {
+            Set<String> villages = new LinkedHashSet<>();
+            villages.add("Gudi \"Hathnoor\"");
+            villages.add("Kothur, B");
+            villages.add("back\\slash");
+            return AddressParseResult.restored(MandalDetectionStatus.SINGLE_MANDAL, "Boath", null,
+                    VillageDetectionStatus.MULTIPLE_VILLAGES, null, villages, "Adilabad", null);
+        }
+        return AddressParseResult.restored(MandalDetectionStatus.MANDAL_NOT_FOUND, null, null,
+                null, null, null, null, null);
+    }
+
+    private static String contents(JdbcTemplate jdbc) {
+        String stats = jdbc.queryForObject(
+                "SELECT md5(string_agg(concat_ws('|', district, mandal, village, category, address_status, " +
+                "unit_count), ',' ORDER BY district, mandal, village, category, address_status)) " +
+                "FROM unit_resolution_stats WHERE unit_count <> 0", String.class);
+        return stats + " " + jdbc.queryForObject(
+                "SELECT md5(string_agg(concat_ws('|', u.slno, u.villageid, u.address_hash, u.resolved_version, " +
+                "r.district, r.mandal, r.mandal_status, r.multiple_mandals::text, r.village, r.village_status, " +
+                "r.multiple_villages::text, r.category, r.resolved_version), ',' ORDER BY u.slno)) " +
+                "FROM msme_unit_details u JOIN unit_address_resolution r ON r.slno = u.slno", String.class);
+    }
+}